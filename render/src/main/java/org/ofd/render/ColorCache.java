@@ -0,0 +1,81 @@
+package org.ofd.render;
+
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 颜色转换缓存
+ * <p>
+ * ICCBased、Separation、DeviceN等颜色空间转换为RGB时需要经过色彩管理或色调函数，
+ * 开销较大，而文档中不同的颜色通常很少。以颜色空间对象及颜色分量为键缓存转换结果，
+ * 缓存RGB值而不是CT_Color，因为XML元素不能被多个对象共用。
+ */
+public class ColorCache {
+
+    /**
+     * 缓存条目上限，渐变等大量不同颜色时不再继续缓存
+     */
+    private static final int MAX_SIZE = 4096;
+
+    private final Map<Key, Integer> colors = new ConcurrentHashMap<>();
+
+    /**
+     * 转换为RGB
+     *
+     * @param color 颜色
+     * @return 0xRRGGBB
+     * @throws IOException 颜色转换异常
+     */
+    public int toRGB(PDColor color) throws IOException {
+        PDColorSpace colorSpace = color.getColorSpace();
+        Key key = new Key(colorSpace.getCOSObject(), color.getComponents());
+        Integer rgb = colors.get(key);
+        if (rgb == null) {
+            float[] value = colorSpace.toRGB(key.components);
+            rgb = toRgbNumber(value[0]) << 16 | toRgbNumber(value[1]) << 8 | toRgbNumber(value[2]);
+            if (colors.size() < MAX_SIZE) {
+                colors.put(key, rgb);
+            }
+        }
+        return rgb;
+    }
+
+    /**
+     * 转换为rgb
+     */
+    private static int toRgbNumber(float color) {
+        return color < 0 ? 0 : (int) ((color > 1 ? 1 : color) * 255);
+    }
+
+    /**
+     * 缓存键，颜色空间按对象引用比较
+     */
+    private static class Key {
+        final Object colorSpace;
+        final float[] components;
+
+        Key(Object colorSpace, float[] components) {
+            this.colorSpace = colorSpace;
+            this.components = components;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return colorSpace == other.colorSpace && Arrays.equals(components, other.components);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(colorSpace) * 31 + Arrays.hashCode(components);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.ofd.render;
+
+import org.dom4j.Element;
+import org.ofdrw.core.OFDElement;
+
+/**
+ * 复合图元内容输出
+ * <p>
+ * 收集Form绘制出的页面对象，完成后作为复合图元（CompositeGraphicUnit）加入文档资源
+ */
+public class CompositeUnitWriter extends ElementContentWriter {
+
+    private final OFDElement content = OFDElement.getInstance("Content");
+
+    /**
+     * 复合图元宽度（毫米）
+     */
+    private final double width;
+
+    /**
+     * 复合图元高度（毫米）
+     */
+    private final double height;
+
+    /**
+     * 复合图元ID，加入文档资源后设置
+     */
+    private String unitId;
+
+    public CompositeUnitWriter(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    protected void add(Element object) {
+        content.add(object);
+    }
+
+    /**
+     * 复合图元不属于某一页面，页码不使用
+     */
+    @Override
+    public void addTo(OFDCreator ofdCreator, int idx) {
+        unitId = ofdCreator.addCompositeGraphicUnit(content, width, height);
+    }
+
+    /**
+     * @return 已收集的内容
+     */
+    public Element getContent() {
+        return content;
+    }
+
+    /**
+     * @return 复合图元ID，未加入文档资源时为null
+     */
+    public String getUnitId() {
+        return unitId;
+    }
+}
@@ -0,0 +1,60 @@
+package org.ofd.render;
+
+import org.dom4j.Element;
+import org.ofdrw.core.basicStructure.pageObj.layer.CT_Layer;
+
+import java.io.IOException;
+
+/**
+ * 页面对象加入CT_Layer，页面完成后整体序列化（兼容模式）
+ */
+public class DomPageContentWriter extends ElementContentWriter {
+
+    private final CT_Layer ctLayer;
+
+    /**
+     * 页面宽度（毫米）
+     */
+    private final float width;
+
+    /**
+     * 页面高度（毫米）
+     */
+    private final float height;
+
+    /**
+     * 页面使用的模板ID
+     */
+    private final String templateId;
+
+    public DomPageContentWriter(CT_Layer ctLayer, float width, float height) {
+        this(ctLayer, width, height, null);
+    }
+
+    /**
+     * @param templateId 页面使用的模板ID，为null时不使用模板
+     */
+    public DomPageContentWriter(CT_Layer ctLayer, float width, float height, String templateId) {
+        this.ctLayer = ctLayer;
+        this.width = width;
+        this.height = height;
+        this.templateId = templateId;
+    }
+
+    @Override
+    protected void add(Element object) {
+        ctLayer.add(object);
+    }
+
+    @Override
+    public void addTo(OFDCreator ofdCreator, int idx) throws IOException {
+        ofdCreator.addPageContent(idx, ctLayer, width, height, templateId);
+    }
+
+    /**
+     * @return 图层
+     */
+    public CT_Layer getCtLayer() {
+        return ctLayer;
+    }
+}
@@ -0,0 +1,128 @@
+package org.ofd.render;
+
+/**
+ * 路径、文字对象的绘制属性
+ * <p>
+ * 使用绘制参数时只有绘制参数引用（及填充、描边标记），否则为线宽、颜色及线型。
+ * 属性为null时不输出，采用OFD默认值。
+ */
+public class DrawStyle {
+
+    /**
+     * 线型属性：线端样式、线条连接样式、斜接长度限制、虚线偏移及虚线样式
+     */
+    public static final String[] LINE_STYLE_ATTRIBUTES = {"Cap", "Join", "MiterLimit", "DashOffset", "DashPattern"};
+
+    private String drawParam;
+
+    private Double lineWidth;
+
+    private Color fillColor;
+
+    private Color strokeColor;
+
+    private String[] lineStyle;
+
+    private Boolean fill;
+
+    private Boolean stroke;
+
+    /**
+     * @return 绘制参数ID
+     */
+    public String getDrawParam() {
+        return drawParam;
+    }
+
+    public DrawStyle setDrawParam(String drawParam) {
+        this.drawParam = drawParam;
+        return this;
+    }
+
+    /**
+     * @return 线宽（毫米）
+     */
+    public Double getLineWidth() {
+        return lineWidth;
+    }
+
+    public DrawStyle setLineWidth(Double lineWidth) {
+        this.lineWidth = lineWidth;
+        return this;
+    }
+
+    public Color getFillColor() {
+        return fillColor;
+    }
+
+    public DrawStyle setFillColor(Color fillColor) {
+        this.fillColor = fillColor;
+        return this;
+    }
+
+    public Color getStrokeColor() {
+        return strokeColor;
+    }
+
+    public DrawStyle setStrokeColor(Color strokeColor) {
+        this.strokeColor = strokeColor;
+        return this;
+    }
+
+    /**
+     * @return 线型，依次对应{@link #LINE_STYLE_ATTRIBUTES}，元素为null时不输出
+     */
+    public String[] getLineStyle() {
+        return lineStyle;
+    }
+
+    public DrawStyle setLineStyle(String[] lineStyle) {
+        this.lineStyle = lineStyle;
+        return this;
+    }
+
+    public Boolean getFill() {
+        return fill;
+    }
+
+    public DrawStyle setFill(Boolean fill) {
+        this.fill = fill;
+        return this;
+    }
+
+    public Boolean getStroke() {
+        return stroke;
+    }
+
+    public DrawStyle setStroke(Boolean stroke) {
+        this.stroke = stroke;
+        return this;
+    }
+
+    /**
+     * 颜色：颜色值及颜色空间引用
+     */
+    public static class Color {
+
+        private final String value;
+
+        private final String colorSpace;
+
+        /**
+         * @param value      颜色值，如"255 0 0"
+         * @param colorSpace 颜色空间ID，为null时使用文档默认颜色空间
+         */
+        public Color(String value, String colorSpace) {
+            this.value = value;
+            this.colorSpace = colorSpace;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getColorSpace() {
+            return colorSpace;
+        }
+    }
+}
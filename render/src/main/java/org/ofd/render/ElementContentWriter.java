@@ -0,0 +1,184 @@
+package org.ofd.render;
+
+import org.dom4j.Element;
+import org.ofd.render.utils.FixedFormat;
+import org.ofd.render.utils.PathEncoder;
+import org.ofdrw.core.OFDElement;
+import org.ofdrw.core.basicStructure.pageObj.layer.block.ImageObject;
+import org.ofdrw.core.basicStructure.pageObj.layer.block.PathObject;
+import org.ofdrw.core.basicStructure.pageObj.layer.block.TextObject;
+import org.ofdrw.core.basicType.ST_Array;
+import org.ofdrw.core.basicType.ST_ID;
+import org.ofdrw.core.basicType.ST_RefID;
+import org.ofdrw.core.graph.pathObj.CT_Path;
+import org.ofdrw.core.pageDescription.clips.Area;
+import org.ofdrw.core.pageDescription.clips.CT_Clip;
+import org.ofdrw.core.pageDescription.clips.Clips;
+import org.ofdrw.core.pageDescription.color.color.CT_Color;
+import org.ofdrw.core.text.CT_CGTransform;
+import org.ofdrw.core.text.TextCode;
+
+import java.util.List;
+
+/**
+ * 页面对象由ofdrw构建为元素后交给子类（DOM页面、复合图元）
+ */
+public abstract class ElementContentWriter implements PageContentWriter {
+
+    /**
+     * 加入构建好的页面对象
+     *
+     * @param object 页面对象
+     */
+    protected abstract void add(Element object);
+
+    @Override
+    public void addPath(long id, double x, double y, double w, double h, DrawStyle style, PathEncoder data) {
+        PathObject path = new PathObject(id);
+        path.setBoundary(x, y, w, h);
+        applyStyle(path, style);
+        if (style.getStrokeColor() != null) {
+            path.setStrokeColor(toElement(style.getStrokeColor(), "StrokeColor"));
+        }
+        if (style.getFillColor() != null) {
+            path.setFillColor(toElement(style.getFillColor(), "FillColor"));
+        }
+        path.setStroke(style.getStroke());
+        path.setFill(style.getFill());
+        path.add(abbreviatedData(data));
+        add(path);
+    }
+
+    @Override
+    public void addText(TextItem text) {
+        TextObject textObj = new TextObject(text.getId());
+        textObj.setBoundary(text.getX(), text.getY(), text.getWidth(), text.getHeight());
+        textObj.setFont(Long.parseLong(text.getFont()));
+        textObj.setSize(text.getSize());
+        if (text.getCtm() != null) {
+            textObj.setCTM(ST_Array.getInstance(text.getCtm()));
+        }
+        if (text.getHScale() != null) {
+            textObj.setHScale(text.getHScale());
+        }
+        DrawStyle style = text.getStyle();
+        applyStyle(textObj, style);
+        if (style.getFillColor() != null) {
+            textObj.setFillColor(toElement(style.getFillColor(), "FillColor"));
+        }
+        if (style.getStrokeColor() != null) {
+            textObj.setStrokeColor(toElement(style.getStrokeColor(), "StrokeColor"));
+        }
+        if (style.getFill() != null) {
+            textObj.setFill(style.getFill());
+        }
+        if (style.getStroke() != null) {
+            textObj.setStroke(style.getStroke());
+        }
+        List<String> glyphs = text.getGlyphs();
+        if (glyphs != null && !glyphs.isEmpty()) {
+            CT_CGTransform cgTransform = new CT_CGTransform();
+            cgTransform.setCodePosition(0);
+            cgTransform.setGlyphCount(text.getContent().length());
+            cgTransform.setCodeCount(text.getContent().length());
+            cgTransform.setGlyphs(new ST_Array(glyphs.toArray(new String[0])));
+            textObj.addCGTransform(cgTransform);
+        }
+        TextCode textCode = new TextCode();
+        textCode.setX(text.getCodeX());
+        textCode.setY(text.getCodeY());
+        if (text.getDeltaX() != null && !text.getDeltaX().isEmpty()) {
+            textCode.setDeltaX(new ST_Array(text.getDeltaX().toArray(new String[0])));
+        }
+        if (text.getDeltaY() != null && !text.getDeltaY().isEmpty()) {
+            textCode.setDeltaY(new ST_Array(text.getDeltaY().toArray(new String[0])));
+        }
+        textCode.setContent(text.getContent());
+        textObj.addTextCode(textCode);
+        add(textObj);
+    }
+
+    @Override
+    public void addImage(long id, double x, double y, double w, double h, String resourceId,
+                        String clipBoundary, PathEncoder clipData) {
+        ImageObject imageObject = new ImageObject(id);
+        imageObject.setBoundary(x, y, w, h);
+        imageObject.setResourceID(new ST_RefID(ST_ID.getInstance(resourceId)));
+        imageObject.setCTM(ST_Array.getInstance(fmt(w) + " 0 0 " + fmt(h) + " 0 0"));
+        if (clipData != null) {
+            CT_Path ctPath = new CT_Path();
+            ctPath.setFill(true);
+            ctPath.setStroke(false);
+            ctPath.addAttribute("Boundary", clipBoundary);
+            ctPath.add(abbreviatedData(clipData));
+            Area area = new Area();
+            area.add(ctPath);
+            CT_Clip ctClip = new CT_Clip();
+            ctClip.addArea(area);
+            Clips clips = new Clips();
+            clips.addClip(ctClip);
+            imageObject.setClips(clips);
+        }
+        add(imageObject);
+    }
+
+    @Override
+    public void addComposite(long id, double w, double h, String ctm, String resourceId) {
+        OFDElement compositeObject = OFDElement.getInstance("CompositeObject");
+        compositeObject.addAttribute("ID", String.valueOf(id));
+        compositeObject.addAttribute("Boundary", "0 0 " + fmt(w) + " " + fmt(h));
+        compositeObject.addAttribute("CTM", ctm);
+        compositeObject.addAttribute("ResourceID", resourceId);
+        add(compositeObject);
+    }
+
+    /**
+     * 绘制参数引用、线宽及线型
+     */
+    private static void applyStyle(Element element, DrawStyle style) {
+        if (style.getDrawParam() != null) {
+            element.addAttribute("DrawParam", style.getDrawParam());
+        }
+        if (style.getLineWidth() != null) {
+            element.addAttribute("LineWidth", fmt(style.getLineWidth()));
+        }
+        String[] lineStyle = style.getLineStyle();
+        if (lineStyle != null) {
+            for (int i = 0; i < lineStyle.length; i++) {
+                if (lineStyle[i] != null) {
+                    element.addAttribute(DrawStyle.LINE_STYLE_ATTRIBUTES[i], lineStyle[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 坐标已按坐标精度四舍五入，按最大精度格式化只去掉末尾的0
+     */
+    private static String fmt(double value) {
+        return FixedFormat.format(value, FixedFormat.MAX_PRECISION);
+    }
+
+    private static OFDElement abbreviatedData(PathEncoder data) {
+        OFDElement abbreviatedData = OFDElement.getInstance("AbbreviatedData");
+        abbreviatedData.setText(data.toString());
+        return abbreviatedData;
+    }
+
+    /**
+     * 颜色元素
+     *
+     * @param color 颜色
+     * @param name  元素名称，如FillColor、StrokeColor
+     * @return 颜色元素
+     */
+    public static CT_Color toElement(DrawStyle.Color color, String name) {
+        CT_Color ctColor = new CT_Color();
+        ctColor.setValue(ST_Array.getInstance(color.getValue()));
+        if (color.getColorSpace() != null) {
+            ctColor.setColorSpace(ST_RefID.getInstance(color.getColorSpace()));
+        }
+        ctColor.setOFDName(name);
+        return ctColor;
+    }
+}
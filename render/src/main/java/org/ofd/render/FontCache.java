@@ -0,0 +1,348 @@
+package org.ofd.render;
+
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.fontbox.util.BoundingBox;
+import org.apache.pdfbox.pdmodel.font.PDCIDFont;
+import org.apache.pdfbox.pdmodel.font.PDCIDFontType2;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1CFont;
+import org.apache.pdfbox.pdmodel.font.PDType3Font;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 字体信息缓存
+ * <p>
+ * 绘制文字时每个字形都需要字体的包围盒、字高、空格宽度及字符码到字形ID、Unicode的映射，
+ * 这些信息对同一字体不变，按字体对象缓存，每个字体只计算一次。
+ * 缓存引用字体对象，只在一个文档的转换过程中使用，随文档一起释放；
+ * 多线程转换时每个工作线程的文档各自使用一个缓存，非线程安全。
+ */
+public class FontCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontCache.class);
+
+    private final Map<Key, FontInfo> fonts = new HashMap<>();
+
+    /**
+     * 获取字体信息
+     *
+     * @param font 字体
+     * @return 字体信息
+     * @throws IOException 字体读取异常
+     */
+    public FontInfo get(PDFont font) throws IOException {
+        Key key = new Key(font);
+        FontInfo info = fonts.get(key);
+        if (info == null) {
+            info = new FontInfo(font);
+            fonts.put(key, info);
+        }
+        return info;
+    }
+
+    /**
+     * 字体信息
+     */
+    public static class FontInfo {
+
+        /**
+         * 映射表覆盖的字符码上限，超出时直接查询字体
+         */
+        private static final int MAX_TABLE_SIZE = 0x10000;
+
+        private final PDFont font;
+
+        private final float height;
+
+        private final float spaceWidthText;
+
+        private final TrueTypeFont ttf;
+
+        private final boolean vertical;
+
+        private final String fontName;
+
+        private final boolean willBeSubset;
+
+        /**
+         * 字形包围盒（文本空间），用于判断文字是否可见
+         */
+        private final Rectangle2D glyphBounds;
+
+        private CmapLookup unicodeCmap;
+
+        private boolean unicodeCmapLoaded = false;
+
+        /**
+         * 字符码 -> 字形ID，-1表示未计算
+         */
+        private int[] gids = new int[0];
+
+        /**
+         * 字符码 -> Unicode，null表示未计算，字体中没有时为空字符串
+         */
+        private String[] unicodes = new String[0];
+
+        /**
+         * 字体ID
+         */
+        private String fontId;
+
+        FontInfo(PDFont font) throws IOException {
+            this.font = font;
+            BoundingBox bbox = font.getBoundingBox();
+            if (bbox.getLowerLeftY() < Short.MIN_VALUE) {
+                // PDFBOX-2158 and PDFBOX-3130
+                // files by Salmat eSolutions / ClibPDF Library
+                bbox.setLowerLeftY(-(bbox.getLowerLeftY() + 65536));
+            }
+            // 字体包围盒可能不准确，至少包含常见字形的范围
+            Rectangle2D glyphBounds = new Rectangle2D.Float(0, -0.3f, 1, 1.3f);
+            if (bbox.getWidth() > 0 && bbox.getHeight() > 0) {
+                Rectangle2D fontBounds = new Rectangle2D.Float(bbox.getLowerLeftX(), bbox.getLowerLeftY(),
+                        bbox.getWidth(), bbox.getHeight());
+                glyphBounds.add(font.getFontMatrix().createAffineTransform()
+                        .createTransformedShape(fontBounds).getBounds2D());
+            }
+            this.glyphBounds = glyphBounds;
+
+            // 1/2 the bbox is used as the height todo: why?
+            float glyphHeight = bbox.getHeight() / 2;
+
+            // sometimes the bbox has very high values, but CapHeight is OK
+            PDFontDescriptor fontDescriptor = font.getFontDescriptor();
+            if (fontDescriptor != null) {
+                float capHeight = fontDescriptor.getCapHeight();
+                if (Float.compare(capHeight, 0) != 0 && (capHeight < glyphHeight
+                        || Float.compare(glyphHeight, 0) == 0)) {
+                    glyphHeight = capHeight;
+                }
+                // PDFBOX-3464, PDFBOX-4480, PDFBOX-4553:
+                // sometimes even CapHeight has very high value, but Ascent and
+                // Descent are ok
+                float ascent = fontDescriptor.getAscent();
+                float descent = fontDescriptor.getDescent();
+                if (capHeight > ascent && ascent > 0 && descent < 0
+                        && ((ascent - descent) / 2 < glyphHeight
+                        || Float.compare(glyphHeight, 0) == 0)) {
+                    glyphHeight = (ascent - descent) / 2;
+                }
+            }
+
+            // transformPoint from glyph space -> text space
+            float glyphSpaceToTextSpaceFactor;
+            if (font instanceof PDType3Font) {
+                this.height = font.getFontMatrix().transformPoint(0, glyphHeight).y;
+                glyphSpaceToTextSpaceFactor = font.getFontMatrix().getScaleX();
+            } else {
+                this.height = glyphHeight / 1000;
+                glyphSpaceToTextSpaceFactor = 1 / 1000f;
+            }
+
+            float spaceWidthText = 0;
+            try {
+                spaceWidthText = font.getSpaceWidth() * glyphSpaceToTextSpaceFactor;
+            } catch (Throwable exception) {
+                logger.error(exception.getMessage(), exception);
+            }
+            if (spaceWidthText == 0) {
+                spaceWidthText = font.getAverageFontWidth() * glyphSpaceToTextSpaceFactor;
+                spaceWidthText *= .80f;
+            }
+            if (spaceWidthText == 0) {
+                spaceWidthText = 1.0f; // if could not find font, use a generic value
+            }
+            this.spaceWidthText = spaceWidthText;
+
+            TrueTypeFont ttf = null;
+            if (font instanceof PDTrueTypeFont) {
+                ttf = ((PDTrueTypeFont) font).getTrueTypeFont();
+            } else if (font instanceof PDType0Font) {
+                PDCIDFont cidFont = ((PDType0Font) font).getDescendantFont();
+                if (cidFont instanceof PDCIDFontType2) {
+                    ttf = ((PDCIDFontType2) cidFont).getTrueTypeFont();
+                }
+            }
+            this.ttf = ttf;
+            this.vertical = font.isVertical();
+
+            String fontName = "";
+            if (fontDescriptor != null) {
+                fontName = fontDescriptor.getFontFamily();
+                if (null == fontName || "".equals(fontName)) {
+                    fontName = font.getName();
+                }
+            }
+            this.fontName = fontName;
+            this.willBeSubset = font.isEmbedded() || font.willBeSubset();
+        }
+
+        /**
+         * @return 字形高度（文本空间）
+         */
+        public float getHeight() {
+            return height;
+        }
+
+        /**
+         * @return 空格宽度（文本空间）
+         */
+        public float getSpaceWidthText() {
+            return spaceWidthText;
+        }
+
+        /**
+         * @return 字形包围盒（文本空间），不包含字形宽度
+         */
+        public Rectangle2D getGlyphBounds() {
+            return glyphBounds;
+        }
+
+        /**
+         * @return TrueType字体，其他类型字体为null
+         */
+        public TrueTypeFont getTrueTypeFont() {
+            return ttf;
+        }
+
+        public boolean isVertical() {
+            return vertical;
+        }
+
+        public String getFontName() {
+            return fontName;
+        }
+
+        public boolean isWillBeSubset() {
+            return willBeSubset;
+        }
+
+        /**
+         * @return TrueType字体的Unicode cmap，没有时为null
+         */
+        public CmapLookup getUnicodeCmap() {
+            if (!unicodeCmapLoaded) {
+                unicodeCmapLoaded = true;
+                try {
+                    unicodeCmap = ttf == null ? null : ttf.getUnicodeCmapLookup();
+                } catch (Exception e) {
+                    //logger.warn("加载字体异常",e);
+                }
+            }
+            return unicodeCmap;
+        }
+
+        /**
+         * 字符码转换为Unicode
+         *
+         * @param code 字符码
+         * @return Unicode，字体中没有对应Unicode时为空字符串
+         * @throws IOException 字体读取异常
+         */
+        public String toUnicode(int code) throws IOException {
+            if (code < 0 || code >= MAX_TABLE_SIZE) {
+                String unicode = font.toUnicode(code);
+                return unicode == null ? "" : unicode;
+            }
+            if (code >= unicodes.length) {
+                unicodes = Arrays.copyOf(unicodes, tableSize(code, unicodes.length));
+            }
+            String unicode = unicodes[code];
+            if (unicode == null) {
+                unicode = font.toUnicode(code);
+                if (unicode == null) {
+                    unicode = "";
+                }
+                unicodes[code] = unicode;
+            }
+            return unicode;
+        }
+
+        /**
+         * 字符码转换为字形ID
+         * <p>
+         * TrueType字体按字体的cmap转换，CFF字体按字形名称转换，其他字体字符码即字形ID
+         *
+         * @param code 字符码
+         * @return 字形ID
+         * @throws IOException 字体读取异常
+         */
+        public int codeToGID(int code) throws IOException {
+            if (code < 0 || code >= MAX_TABLE_SIZE) {
+                return lookupGID(code);
+            }
+            if (code >= gids.length) {
+                int oldLength = gids.length;
+                gids = Arrays.copyOf(gids, tableSize(code, oldLength));
+                Arrays.fill(gids, oldLength, gids.length, -1);
+            }
+            int gid = gids[code];
+            if (gid < 0) {
+                gid = lookupGID(code);
+                gids[code] = gid;
+            }
+            return gid;
+        }
+
+        private int lookupGID(int code) throws IOException {
+            if (font instanceof PDTrueTypeFont) {
+                return ((PDTrueTypeFont) font).codeToGID(code);
+            } else if (font instanceof PDType1CFont) {
+                PDType1CFont type1CFont = (PDType1CFont) font;
+                String name = type1CFont.codeToName(code);
+                return type1CFont.getCFFType1Font().nameToGID(name);
+            }
+            return code;
+        }
+
+        private static int tableSize(int code, int length) {
+            return Math.min(MAX_TABLE_SIZE, Math.max(code + 1, Math.max(256, length * 2)));
+        }
+
+        /**
+         * @return 字体ID，未添加到OFD时为null
+         */
+        public String getFontId() {
+            return fontId;
+        }
+
+        /**
+         * @param fontId 字体ID
+         */
+        public void setFontId(String fontId) {
+            this.fontId = fontId;
+        }
+    }
+
+    /**
+     * 缓存键，字体按对象引用比较
+     */
+    private static class Key {
+        final PDFont font;
+
+        Key(PDFont font) {
+            this.font = font;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && font == ((Key) o).font;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(font);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.ofd.render;
+
+import org.apache.pdfbox.pdmodel.graphics.PDLineDashPattern;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDPattern;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.pdmodel.graphics.state.PDTextState;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Form XObject转换缓存
+ * <p>
+ * 重复使用的Form XObject只转换一次，生成复合图元（CompositeGraphicUnit），
+ * 各使用处以CompositeObject引用。Form会继承调用处的颜色、线宽、线型、透明度和文字状态，
+ * 因此以Form的对象号及这些状态的值为键，状态不同时分别转换。键中不引用PDFBox对象，
+ * 工作线程的文档关闭后不会被缓存保留，各线程加载的同一文档中对象号相同，可以共用转换结果。
+ */
+public class FormCache {
+
+    /**
+     * 缓存键 -> 复合图元ID
+     */
+    private final Map<List<Object>, String> units = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存键 -> 使用次数
+     */
+    private final Map<List<Object>, AtomicInteger> uses = new ConcurrentHashMap<>();
+
+    /**
+     * 获取Form的缓存键
+     *
+     * @param formRef    Form在文档中的对象号
+     * @param state      调用处的图形状态
+     * @param fontKey    调用处字体的去重键，没有字体时为null
+     * @param colorCache 颜色转换缓存
+     * @return 缓存键，Form没有对象号或使用了软掩膜等不能转换为复合图元的状态时返回null
+     * @throws IOException 颜色转换异常
+     */
+    public Object keyOf(String formRef, PDGraphicsState state, String fontKey,
+                        ColorCache colorCache) throws IOException {
+        if (formRef == null || state.getSoftMask() != null) {
+            return null;
+        }
+        PDLineDashPattern dash = state.getLineDashPattern();
+        PDTextState text = state.getTextState();
+        return Arrays.asList(formRef,
+                colorKey(state.getNonStrokingColor(), colorCache),
+                colorKey(state.getStrokingColor(), colorCache),
+                state.getLineWidth(), state.getLineCap(), state.getLineJoin(), state.getMiterLimit(),
+                dash == null ? null : Arrays.toString(dash.getDashArray()) + dash.getPhase(),
+                state.getAlphaConstant(), state.getNonStrokeAlphaConstant(), state.getBlendMode(),
+                fontKey, text.getFontSize(), text.getCharacterSpacing(), text.getWordSpacing(),
+                text.getHorizontalScaling(), text.getLeading(), text.getRise(), text.getRenderingMode());
+    }
+
+    /**
+     * 颜色的值，包括颜色空间、分量及转换后的RGB，不引用颜色空间对象
+     */
+    private static String colorKey(PDColor color, ColorCache colorCache) throws IOException {
+        if (color == null) {
+            return null;
+        }
+        PDColorSpace colorSpace = color.getColorSpace();
+        StringBuilder sb = new StringBuilder();
+        sb.append(colorSpace == null ? "" : colorSpace.getName()).append(Arrays.toString(color.getComponents()));
+        if (color.getPatternName() != null) {
+            sb.append('/').append(color.getPatternName().getName());
+        } else if (colorSpace != null && !(colorSpace instanceof PDPattern)) {
+            sb.append('#').append(colorCache.toRGB(color));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 记录一次使用
+     *
+     * @param key 缓存键
+     * @return 包括本次在内的使用次数
+     */
+    @SuppressWarnings("unchecked")
+    public int use(Object key) {
+        return uses.computeIfAbsent((List<Object>) key, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * @param key 缓存键
+     * @return 复合图元ID，未转换过时返回null
+     */
+    public String get(Object key) {
+        return units.get(key);
+    }
+
+    /**
+     * @param key    缓存键
+     * @param unitId 复合图元ID
+     */
+    @SuppressWarnings("unchecked")
+    public void put(Object key, String unitId) {
+        units.put((List<Object>) key, unitId);
+    }
+}
@@ -0,0 +1,120 @@
+package org.ofd.render;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDInlineImage;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.MD5Digest;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已转换图片缓存
+ * <p>
+ * 同一图片多次绘制（如每页的页眉、Logo）时直接引用已生成的多媒体资源，
+ * 不再重复解码和编码。图片XObject以对象号为键，
+ * 内嵌图片及直接定义在资源中的图片没有对象号，以图片数据及参数的摘要为键；
+ * 同一图片按不同尺寸缩放时分别缓存。键中不引用PDFBox对象，工作线程的文档关闭后
+ * 不会被缓存保留；各线程加载的同一文档中对象号相同，同一图片只转换一次。
+ */
+public class ImageCache {
+
+    /**
+     * 图片及目标尺寸 -> 图片资源ID
+     */
+    private final Map<Key, String> images = new ConcurrentHashMap<>();
+
+    /**
+     * 获取图片的缓存键
+     *
+     * @param pdImage  图片
+     * @param imageRef 图片XObject在文档中的对象号，没有时为null
+     * @param width    目标宽度（像素）
+     * @param height   目标高度（像素）
+     * @return 缓存键
+     * @throws IOException 图片数据读取异常
+     */
+    public Object keyOf(PDImage pdImage, String imageRef, int width, int height) throws IOException {
+        return new Key(imageRef != null ? imageRef : digestOf(pdImage), width, height);
+    }
+
+    private static String digestOf(PDImage pdImage) throws IOException {
+        Digest digest = new MD5Digest();
+        COSBase cos = pdImage.getCOSObject();
+        if (pdImage instanceof PDInlineImage) {
+            byte[] data = ((PDInlineImage) pdImage).getData();
+            digest.update(data, 0, data.length);
+        } else if (cos instanceof COSStream) {
+            byte[] buf = new byte[8192];
+            try (InputStream is = ((COSStream) cos).createRawInputStream()) {
+                int n;
+                while ((n = is.read(buf)) > 0) {
+                    digest.update(buf, 0, n);
+                }
+            }
+        }
+        // 参数中的颜色空间可能引用页面资源，使用解析后的颜色空间
+        byte[] params = cos.toString().getBytes(StandardCharsets.UTF_8);
+        digest.update(params, 0, params.length);
+        PDColorSpace colorSpace = pdImage.isStencil() ? null : pdImage.getColorSpace();
+        if (colorSpace != null) {
+            byte[] cs = (colorSpace.getName() + colorSpace.getNumberOfComponents()).getBytes(StandardCharsets.UTF_8);
+            digest.update(cs, 0, cs.length);
+        }
+        byte[] md5Bytes = new byte[digest.getDigestSize()];
+        digest.doFinal(md5Bytes, 0);
+        return Hex.toHexString(md5Bytes);
+    }
+
+    /**
+     * @param key 缓存键
+     * @return 图片资源ID，未转换过时返回null
+     */
+    public String get(Object key) {
+        return images.get(key);
+    }
+
+    /**
+     * @param key     缓存键
+     * @param imageId 图片资源ID
+     */
+    public void put(Object key, String imageId) {
+        images.put((Key) key, imageId);
+    }
+
+    /**
+     * 缓存键，按对象号或摘要比较
+     */
+    private static class Key {
+        final String source;
+        final int width;
+        final int height;
+
+        Key(String source, int width, int height) {
+            this.source = source;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return source.equals(other.source) && width == other.width && height == other.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return (source.hashCode() * 31 + width) * 31 + height;
+        }
+    }
+}
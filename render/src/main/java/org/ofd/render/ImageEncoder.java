@@ -0,0 +1,272 @@
+package org.ofd.render;
+
+import org.ofd.render.config.ImagePolicy;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片编码线程池
+ * <p>
+ * 页面绘制线程解码图片后提交编码任务并继续处理页面，编码在线程池中进行。
+ * 等待队列有上限，队列已满时由提交线程自行编码，避免解码后的图片在内存中堆积。
+ */
+public class ImageEncoder implements Closeable {
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * 已提交的编码任务
+     */
+    private final List<Future<Void>> pending = new ArrayList<>();
+
+    /**
+     * @param threads 编码线程数
+     */
+    public ImageEncoder(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("图片编码线程数（threads）不能小于1");
+        }
+        String prefix = "ofd-image-" + POOL_SEQ.incrementAndGet() + "-";
+        AtomicInteger threadSeq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2),
+                r -> {
+                    Thread t = new Thread(r, prefix + threadSeq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 提交编码任务
+     *
+     * @param task 编码任务
+     */
+    public void submit(Callable<Void> task) {
+        Future<Void> future = pool.submit(task);
+        synchronized (pending) {
+            pending.add(future);
+        }
+    }
+
+    /**
+     * 等待已提交的编码任务全部完成
+     *
+     * @throws IOException 编码失败
+     */
+    public void await() throws IOException {
+        synchronized (pending) {
+            for (Iterator<Future<Void>> it = pending.iterator(); it.hasNext(); ) {
+                try {
+                    it.next().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("图片编码被中断", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IOException("图片编码失败", cause);
+                }
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 关闭线程池，未完成的任务将被取消
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 按图片策略缩放并编码图片
+     *
+     * @param image  图片
+     * @param kind   图片类型
+     * @param width  目标宽度（像素），大于等于原宽度时不缩放
+     * @param height 目标高度（像素）
+     * @param policy 图片策略
+     * @return 编码后的图片
+     * @throws IOException 编码异常
+     */
+    public static EncodedImage encode(BufferedImage image, Kind kind, int width, int height, ImagePolicy policy) throws IOException {
+        boolean scaled = width < image.getWidth() || height < image.getHeight();
+        if (scaled) {
+            image = scale(image, Math.min(width, image.getWidth()), Math.min(height, image.getHeight()));
+        }
+        if (image.getColorModel().hasAlpha()) {
+            return new EncodedImage(encodePng(image), "png");
+        }
+        boolean jpeg = policy.getJpegQuality() > 0;
+        if (policy.isReduceBitDepth()) {
+            if (kind == Kind.BILEVEL && !scaled) {
+                return new EncodedImage(encodePng(convert(image, BufferedImage.TYPE_BYTE_BINARY)), "png");
+            }
+            if (kind == Kind.BILEVEL || kind == Kind.GRAY) {
+                image = convert(image, BufferedImage.TYPE_BYTE_GRAY);
+                jpeg = jpeg && kind == Kind.GRAY;
+            }
+        }
+        if (jpeg && (kind == Kind.GRAY || kind == Kind.COLOR)) {
+            return new EncodedImage(encodeJpeg(image, policy.getJpegQuality()), "jpeg");
+        }
+        return new EncodedImage(encodePng(image), "png");
+    }
+
+    /**
+     * 缩放图片
+     */
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage ret = new BufferedImage(Math.max(1, width), Math.max(1, height), type);
+        Graphics2D g = ret.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, ret.getWidth(), ret.getHeight(), null);
+        } finally {
+            g.dispose();
+        }
+        return ret;
+    }
+
+    /**
+     * 转换图片像素格式
+     */
+    private static BufferedImage convert(BufferedImage image, int type) {
+        if (image.getType() == type) {
+            return image;
+        }
+        BufferedImage ret = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D g = ret.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return ret;
+    }
+
+    /**
+     * 编码为JPEG，不经过ImageIO的临时文件缓存
+     */
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(bos)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * 编码为PNG
+     * <p>
+     * 使用内存缓存的输出流，不经过ImageIO的临时文件缓存
+     *
+     * @param image 图片
+     * @return PNG数据
+     * @throws IOException 编码异常
+     */
+    public static byte[] encodePng(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(bos)) {
+            writer.setOutput(ios);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * 图片类型，由PDF图片的颜色空间和位深确定
+     */
+    public enum Kind {
+        /**
+         * 1位灰度（二值）
+         */
+        BILEVEL,
+        /**
+         * 灰度
+         */
+        GRAY,
+        /**
+         * 索引色
+         */
+        INDEXED,
+        /**
+         * 其他彩色
+         */
+        COLOR
+    }
+
+    /**
+     * 编码后的图片
+     */
+    public static class EncodedImage {
+        private final byte[] data;
+        private final String format;
+
+        EncodedImage(byte[] data, String format) {
+            this.data = data;
+            this.format = format;
+        }
+
+        /**
+         * @return 图片数据
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * @return 图片格式，png或jpeg
+         */
+        public String getFormat() {
+            return format;
+        }
+
+        /**
+         * @return 文件后缀
+         */
+        public String getSuffix() {
+            return "jpeg".equals(format) ? "jpg" : format;
+        }
+    }
+}
@@ -1,16 +1,31 @@
 package org.ofd.render;
 
+import org.ofd.render.config.ConvertOptions;
+import org.ofd.render.config.ImagePolicy;
 import org.ofd.render.config.OfdResIdDefine;
+import org.ofd.render.dir.ArchiveSink;
 import org.ofd.render.dir.DocDir;
+import org.ofd.render.dir.DocObjDump;
 import org.ofd.render.dir.OFDDir;
 import org.ofd.render.dir.PageDir;
 import org.ofd.render.dir.PagesDir;
+import org.ofd.render.dir.TemplateDir;
+import org.ofd.render.dir.TemplatesDir;
+import org.ofd.render.utils.DigestUtil;
+import org.ofd.render.utils.FixedFormat;
+import org.ofd.render.utils.ParallelZipArchiveSink;
+import org.ofd.render.utils.TrueTypeSubsetter;
+import org.ofd.render.utils.ZipArchiveSink;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.dom4j.Element;
+import org.ofdrw.core.OFDElement;
 import org.ofdrw.core.basicStructure.doc.CT_CommonData;
 import org.ofdrw.core.basicStructure.doc.CT_PageArea;
 import org.ofdrw.core.basicStructure.doc.Document;
 import org.ofdrw.core.basicStructure.ofd.DocBody;
 import org.ofdrw.core.basicStructure.ofd.OFD;
 import org.ofdrw.core.basicStructure.ofd.docInfo.CT_DocInfo;
+import org.ofdrw.core.basicStructure.pageObj.CT_TemplatePage;
 import org.ofdrw.core.basicStructure.pageObj.Content;
 import org.ofdrw.core.basicStructure.pageObj.layer.CT_Layer;
 import org.ofdrw.core.basicStructure.pageTree.Page;
@@ -29,30 +44,136 @@ import org.ofdrw.core.pageDescription.color.colorSpace.CT_ColorSpace;
 import org.ofdrw.core.pageDescription.color.colorSpace.OFDColorSpaceType;
 import org.ofdrw.core.text.font.CT_Font;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class OFDCreator {
+public class OFDCreator implements Closeable {
     private Map<String, String> fontMap;
     private Map<String, String> imageMap;
     private OFDDir ofdDir;
 
     private DocDir docDir;
 
-    private long localRID = OfdResIdDefine.RID_VarStart;
+    /**
+     * 嵌入的字体文件，键为字体ID
+     */
+    private final Map<String, EmbeddedFont> embeddedFonts = new ConcurrentHashMap<>();
+
+    /**
+     * 已转换图片缓存
+     */
+    private final ImageCache imageCache = new ImageCache();
+
+    /**
+     * 颜色转换缓存
+     */
+    private final ColorCache colorCache = new ColorCache();
+
+    /**
+     * Form XObject转换缓存
+     */
+    private final FormCache formCache = new FormCache();
+
+    /**
+     * 重复使用的Form XObject转换为复合图元
+     */
+    private boolean compositeForms = ConvertOptions.DEFAULT_COMPOSITE_FORMS;
+
+    /**
+     * 路径简化容差（毫米），0表示不简化
+     */
+    private double pathTolerance = ConvertOptions.DEFAULT_PATH_TOLERANCE;
+
+    /**
+     * 页面内容中坐标的小数位数（毫米）
+     */
+    private int coordinatePrecision = ConvertOptions.DEFAULT_COORDINATE_PRECISION;
+
+    /**
+     * 填充颜色、描边颜色、线宽及线型相同的对象引用公共资源中的同一个绘制参数
+     */
+    private boolean drawParams = ConvertOptions.DEFAULT_DRAW_PARAMS;
+
+    /**
+     * 已添加的绘制参数，键为绘制参数内容，值为ID
+     */
+    private final Map<String, String> drawParamMap = new ConcurrentHashMap<>();
+
+    /**
+     * 丢弃完全位于页面或裁剪区域之外的对象
+     */
+    private boolean cullInvisible = ConvertOptions.DEFAULT_CULL_INVISIBLE;
+
+    private Res publicRes;
+
+    /**
+     * 绘制参数资源，第一次添加绘制参数时创建
+     */
+    private OFDElement drawParamsRes;
+
+    private Res documentRes;
+
+    /**
+     * 复合图元资源，第一次添加复合图元时创建
+     */
+    private OFDElement compositeGraphicUnits;
+
+    /**
+     * 图片编码线程数，为0时在绘制线程中编码
+     */
+    private int imageThreads = ConvertOptions.DEFAULT_IMAGE_THREADS;
+
+    private ImageEncoder imageEncoder;
+
+    /**
+     * 图片转换策略
+     */
+    private ImagePolicy imagePolicy = new ImagePolicy();
+
+    /**
+     * DeviceGray、DeviceCMYK颜色使用对应的OFD颜色空间，不转换为RGB
+     */
+    private boolean nativeColorSpaces = ConvertOptions.DEFAULT_NATIVE_COLOR_SPACES;
+
+    /**
+     * 打包时生成字体子集
+     */
+    private boolean subsetFonts = ConvertOptions.DEFAULT_SUBSET_FONTS;
+
+    /**
+     * 生成字体子集时去除字形指令
+     */
+    private boolean stripHinting = ConvertOptions.DEFAULT_STRIP_HINTING;
+
+    /**
+     * 资源ID计数器，多线程转换页面时共享
+     */
+    private final AtomicLong localRID = new AtomicLong(OfdResIdDefine.RID_VarStart);
+
+    /**
+     * 归档输出，打开后图片、页面及模板内容完成即写入归档，字体在打包时生成子集后写入
+     */
+    private ArchiveSink sink;
 
     public long getNextRid() {
-        return ++localRID;
+        return localRID.incrementAndGet();
     }
 
     public long getCurrRid() {
-        return localRID;
+        return localRID.get();
     }
 
     public Map<String, String> getFontMap() {
@@ -63,11 +184,159 @@ public class OFDCreator {
         return imageMap;
     }
 
+    public ImageCache getImageCache() {
+        return imageCache;
+    }
+
+    public ColorCache getColorCache() {
+        return colorCache;
+    }
+
+    public FormCache getFormCache() {
+        return formCache;
+    }
+
+    public boolean isCompositeForms() {
+        return compositeForms;
+    }
+
+    /**
+     * 设置 是否将重复使用的Form XObject转换为复合图元
+     *
+     * @param compositeForms 为true时Form只转换一次，使用处引用复合图元
+     * @return this
+     */
+    public OFDCreator setCompositeForms(boolean compositeForms) {
+        this.compositeForms = compositeForms;
+        return this;
+    }
+
+    public boolean isDrawParams() {
+        return drawParams;
+    }
+
+    /**
+     * 设置 是否使用公共资源中的绘制参数
+     *
+     * @param drawParams 为true时颜色、线宽及线型写入绘制参数（DrawParam），对象按ID引用
+     * @return this
+     */
+    public OFDCreator setDrawParams(boolean drawParams) {
+        this.drawParams = drawParams;
+        return this;
+    }
+
+    /**
+     * 查找已添加的绘制参数
+     *
+     * @param key 绘制参数内容
+     * @return 绘制参数ID，未添加时返回null
+     */
+    public String getDrawParam(String key) {
+        return drawParamMap.get(key);
+    }
+
+    /**
+     * 添加绘制参数到公共资源，内容相同的绘制参数只添加一次
+     *
+     * @param key   绘制参数内容
+     * @param param 绘制参数，不含ID
+     * @return 绘制参数ID
+     */
+    public synchronized String putDrawParam(String key, Element param) {
+        String paramId = drawParamMap.get(key);
+        if (paramId == null) {
+            if (drawParamsRes == null) {
+                drawParamsRes = OFDElement.getInstance("DrawParams");
+                publicRes.add(drawParamsRes);
+            }
+            long currentId = this.getNextRid();
+            param.addAttribute("ID", String.valueOf(currentId));
+            drawParamsRes.add(param);
+            paramId = String.valueOf(currentId);
+            drawParamMap.put(key, paramId);
+        }
+        return paramId;
+    }
+
+    public boolean isCullInvisible() {
+        return cullInvisible;
+    }
+
+    /**
+     * 设置 是否丢弃不可见的对象
+     *
+     * @param cullInvisible 为true时完全位于页面或裁剪区域之外的路径、图片及文字不输出
+     * @return this
+     */
+    public OFDCreator setCullInvisible(boolean cullInvisible) {
+        this.cullInvisible = cullInvisible;
+        return this;
+    }
+
+    public int getCoordinatePrecision() {
+        return coordinatePrecision;
+    }
+
+    /**
+     * 设置 页面内容中坐标的小数位数
+     * <p>
+     * 作用于对象外接矩形、变换矩阵的平移分量、字符间距及路径数据
+     *
+     * @param coordinatePrecision 小数位数，0~6，如2表示精确到0.01毫米
+     * @return this
+     */
+    public OFDCreator setCoordinatePrecision(int coordinatePrecision) {
+        this.coordinatePrecision = FixedFormat.checkPrecision(coordinatePrecision);
+        return this;
+    }
+
+    public double getPathTolerance() {
+        return pathTolerance;
+    }
+
+    /**
+     * 设置 路径简化容差
+     *
+     * @param pathTolerance 容差（毫米），0表示不简化
+     * @return this
+     */
+    public OFDCreator setPathTolerance(double pathTolerance) {
+        if (pathTolerance < 0) {
+            throw new IllegalArgumentException("路径简化容差（pathTolerance）不能小于0");
+        }
+        this.pathTolerance = pathTolerance;
+        return this;
+    }
+
+    /**
+     * 添加复合图元到文档资源
+     *
+     * @param content 图元内容
+     * @param width   宽度
+     * @param height  高度
+     * @return 复合图元ID
+     */
+    public synchronized String addCompositeGraphicUnit(Element content, double width, double height) {
+        if (compositeGraphicUnits == null) {
+            compositeGraphicUnits = OFDElement.getInstance("CompositeGraphicUnits");
+            documentRes.add(compositeGraphicUnits);
+        }
+        long currentId = this.getNextRid();
+        OFDElement unit = OFDElement.getInstance("CompositeGraphicUnit");
+        unit.addAttribute("ID", String.valueOf(currentId));
+        unit.addAttribute("Width", FixedFormat.format(width, coordinatePrecision));
+        unit.addAttribute("Height", FixedFormat.format(height, coordinatePrecision));
+        unit.add(content);
+        compositeGraphicUnits.add(unit);
+        return String.valueOf(currentId);
+    }
+
     private MultiMedias mms;
 
     public OFDCreator() {
-        fontMap = new HashMap<>();
-        imageMap = new HashMap<>();
+        fontMap = new ConcurrentHashMap<>();
+        imageMap = new ConcurrentHashMap<>();
         ofdDir = new OFDDir();
 
         //生成ofd.xml文件
@@ -110,10 +379,18 @@ public class OFDCreator {
         clrSpace.setBitsPerComponent(BitsPerComponent.BIT_8);
         ColorSpaces clrSpaces = new ColorSpaces();
         clrSpaces.addColorSpace(clrSpace);
+        // 灰度和CMYK颜色直接使用原始分量
+        CT_ColorSpace grayClrSpace = new CT_ColorSpace(OFDColorSpaceType.GRAY, OfdResIdDefine.RID_ColorSpace_Gray);
+        grayClrSpace.setBitsPerComponent(BitsPerComponent.BIT_8);
+        clrSpaces.addColorSpace(grayClrSpace);
+        CT_ColorSpace cmykClrSpace = new CT_ColorSpace(OFDColorSpaceType.CMYK, OfdResIdDefine.RID_ColorSpace_CMYK);
+        cmykClrSpace.setBitsPerComponent(BitsPerComponent.BIT_8);
+        clrSpaces.addColorSpace(cmykClrSpace);
         ret.addResource(clrSpaces);
 
         Fonts fonts = new Fonts();
         ret.addResource(fonts);
+        publicRes = ret;
 
         return ret;
     }
@@ -124,6 +401,7 @@ public class OFDCreator {
 
         mms = new MultiMedias();
         ret.add(mms);
+        documentRes = ret;
 
         return ret;
     }
@@ -150,7 +428,7 @@ public class OFDCreator {
         return doc;
     }
 
-    public String putFont(String familyName, String fontName, byte[] fontBytes, String suffix) {
+    public synchronized String putFont(String familyName, String fontName, byte[] fontBytes, String suffix) {
         String fontId = this.fontMap.get(fontName);
         if (this.fontMap.get(fontName) == null) {
             long currentId = this.getNextRid();
@@ -172,8 +450,8 @@ public class OFDCreator {
         return fontId;
     }
 
-    // 以hashcode作为文件名，防止字体重名
-    public String putFont(String fontHash, String familyName, String fontName, byte[] fontBytes, String suffix) {
+    // 以字体去重键查找，以资源ID作为文件名，防止字体重名
+    public synchronized String putFont(String fontHash, String familyName, String fontName, byte[] fontBytes, String suffix) {
         String fontId = this.fontMap.get(fontHash);
         if (fontId == null) {
             long currentId = this.getNextRid();
@@ -184,6 +462,7 @@ public class OFDCreator {
             if (fontBytes != null) {
                 fntKt.setFontFile(new ST_Loc("font_" + currentId + suffix));
                 docDir.addResource("font_" + currentId + suffix, fontBytes);
+                embeddedFonts.put(String.valueOf(currentId), new EmbeddedFont("font_" + currentId + suffix, fontBytes));
             }
             Fonts fonts = this.ofdDir.getDocDefault().getPublicRes().getFonts().get(0);
             if (fonts != null) {
@@ -195,7 +474,72 @@ public class OFDCreator {
         return fontId;
     }
 
-    public void putImage(String name, byte[] imageBytes, String suffix) {
+    /**
+     * 记录字体使用到的字形，用于打包时生成字体子集
+     *
+     * @param fontId   字体ID
+     * @param glyphIds 字形ID，为空表示按Unicode使用字体，需要保留完整字体
+     */
+    public void addGlyphs(String fontId, List<String> glyphIds) {
+        EmbeddedFont font = embeddedFonts.get(fontId);
+        if (font == null) {
+            return;
+        }
+        synchronized (font) {
+            if (glyphIds == null || glyphIds.isEmpty()) {
+                font.full = true;
+                return;
+            }
+            for (String glyphId : glyphIds) {
+                try {
+                    font.glyphIds.add(Integer.valueOf(glyphId));
+                } catch (NumberFormatException e) {
+                    font.full = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 设置 是否在打包时生成字体子集
+     *
+     * @param subsetFonts 为true时只保留使用到的字形
+     * @return this
+     */
+    public OFDCreator setSubsetFonts(boolean subsetFonts) {
+        this.subsetFonts = subsetFonts;
+        return this;
+    }
+
+    /**
+     * 设置 生成字体子集时是否去除字形指令
+     *
+     * @param stripHinting 为true时同时删除fpgm、prep、cvt等表
+     * @return this
+     */
+    public OFDCreator setStripHinting(boolean stripHinting) {
+        this.stripHinting = stripHinting;
+        return this;
+    }
+
+    /**
+     * 用字体子集替换嵌入的字体文件
+     */
+    private void subsetFonts() {
+        if (!subsetFonts) {
+            return;
+        }
+        for (EmbeddedFont font : embeddedFonts.values()) {
+            synchronized (font) {
+                if (font.full || font.glyphIds.isEmpty()) {
+                    continue;
+                }
+                docDir.addResource(font.name, TrueTypeSubsetter.subset(font.data, font.glyphIds, stripHinting));
+            }
+        }
+    }
+
+    public synchronized void putImage(String name, byte[] imageBytes, String suffix) throws IOException {
         if (this.imageMap.get(name) == null) {
             long currentId = this.getNextRid();
             CT_MultiMedia mmEwm = new CT_MultiMedia();
@@ -204,46 +548,398 @@ public class OFDCreator {
             mmEwm.setFormat(suffix.toUpperCase());
             mmEwm.setMediaFile(new ST_Loc(name));
             mms.addMultiMedia(mmEwm);
-            docDir.addResource(name, imageBytes);
+            putResource(name, imageBytes);
             this.imageMap.put(name, String.valueOf(currentId));
         }
     }
 
-    public void addPage(int idx) {
+    /**
+     * 添加图片，按图片策略缩放并编码
+     * <p>
+     * 设置了图片编码线程时立即分配资源ID并返回，编码完成后再写入图片文件，
+     * 打包前会等待所有编码完成。内容相同的图片共用同一个图片文件；
+     * 在绘制线程中编码时共用同一个多媒体资源，异步编码时资源ID已被页面引用，
+     * 各自保留多媒体资源条目。
+     *
+     * @param image  图片
+     * @param kind   图片类型
+     * @param width  目标宽度（像素）
+     * @param height 目标高度（像素）
+     * @return 图片资源ID
+     * @throws IOException 编码异常
+     */
+    public String putImage(BufferedImage image, ImageEncoder.Kind kind, int width, int height) throws IOException {
+        if (imageThreads <= 0) {
+            ImageEncoder.EncodedImage encoded = ImageEncoder.encode(image, kind, width, height, imagePolicy);
+            String name = String.format("%s.%s", DigestUtil.md5Hex(encoded.getData()), encoded.getSuffix());
+            putImage(name, encoded.getData(), encoded.getFormat());
+            return imageMap.get(name);
+        }
+        long currentId;
+        CT_MultiMedia mmEwm = new CT_MultiMedia();
+        synchronized (this) {
+            if (imageEncoder == null) {
+                imageEncoder = new ImageEncoder(imageThreads);
+            }
+            currentId = this.getNextRid();
+            mmEwm.setID(new ST_ID(currentId));
+            mmEwm.setType(MediaType.Image);
+            mms.addMultiMedia(mmEwm);
+        }
+        imageEncoder.submit(() -> {
+            ImageEncoder.EncodedImage encoded = ImageEncoder.encode(image, kind, width, height, imagePolicy);
+            String name = String.format("%s.%s", DigestUtil.md5Hex(encoded.getData()), encoded.getSuffix());
+            synchronized (this) {
+                mmEwm.setFormat(encoded.getFormat().toUpperCase());
+                mmEwm.setMediaFile(new ST_Loc(name));
+                if (this.imageMap.get(name) == null) {
+                    putResource(name, encoded.getData());
+                    this.imageMap.put(name, String.valueOf(currentId));
+                }
+            }
+            return null;
+        });
+        return String.valueOf(currentId);
+    }
+
+    /**
+     * 设置 图片编码线程数
+     *
+     * @param imageThreads 线程数，为0时在绘制线程中编码
+     * @return this
+     */
+    public OFDCreator setImageThreads(int imageThreads) {
+        this.imageThreads = imageThreads;
+        return this;
+    }
+
+    public boolean isNativeColorSpaces() {
+        return nativeColorSpaces;
+    }
+
+    /**
+     * 设置 是否使用灰度、CMYK颜色空间输出颜色
+     *
+     * @param nativeColorSpaces 为true时DeviceGray、DeviceCMYK颜色保留原始分量
+     * @return this
+     */
+    public OFDCreator setNativeColorSpaces(boolean nativeColorSpaces) {
+        this.nativeColorSpaces = nativeColorSpaces;
+        return this;
+    }
+
+    public ImagePolicy getImagePolicy() {
+        return imagePolicy;
+    }
+
+    /**
+     * 设置 图片转换策略
+     *
+     * @param imagePolicy 图片转换策略
+     * @return this
+     */
+    public OFDCreator setImagePolicy(ImagePolicy imagePolicy) {
+        if (imagePolicy == null) {
+            throw new IllegalArgumentException("图片转换策略（imagePolicy）不能为空");
+        }
+        this.imagePolicy = imagePolicy;
+        return this;
+    }
+
+    /**
+     * 等待图片编码完成
+     */
+    private void awaitImages() throws IOException {
+        ImageEncoder encoder;
+        synchronized (this) {
+            encoder = imageEncoder;
+        }
+        if (encoder != null) {
+            encoder.await();
+        }
+    }
+
+    /**
+     * 关闭图片编码线程池及未完成的归档输出
+     */
+    @Override
+    public synchronized void close() {
+        if (imageEncoder != null) {
+            imageEncoder.close();
+            imageEncoder = null;
+        }
+        if (sink != null) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                // 调用方的输出流不会被关闭，此处只释放压缩资源
+            }
+            sink = null;
+        }
+    }
+
+    /**
+     * 打开OFD输出
+     * <p>
+     * 之后添加的图片、页面内容及模板内容完成即压缩写入归档并释放，
+     * 内存占用只与单个条目有关；字体需要在所有页面完成后生成子集，保留到{@link #finish()}。
+     * 转换失败时输出流中可能已写入部分内容。
+     *
+     * @param output      OFD输出流，完成后不会关闭
+     * @param parallelism 压缩线程数，小于等于1时在写入线程中压缩
+     * @return this
+     */
+    public synchronized OFDCreator open(OutputStream output, int parallelism) {
+        if (sink != null) {
+            throw new IllegalStateException("OFD输出已打开");
+        }
+        OutputStream shielded = new CloseShieldOutputStream(output);
+        sink = parallelism > 1 ? new ParallelZipArchiveSink(shielded, parallelism) : new ZipArchiveSink(shielded);
+        return this;
+    }
+
+    /**
+     * 完成打包：等待图片编码完成，生成字体子集，写入文档描述文件、字体等其余条目及中央目录
+     *
+     * @throws IOException IO异常
+     */
+    public void finish() throws IOException {
+        ArchiveSink target;
+        synchronized (this) {
+            if (sink == null) {
+                throw new IllegalStateException("OFD输出未打开");
+            }
+            target = sink;
+        }
+        docDir.getDocument().getCommonData().setMaxUnitID(getCurrRid());
+        awaitImages();
+        subsetFonts();
+        ofdDir.collect("", target);
+        target.finish();
+    }
+
+    /**
+     * 添加资源文件，输出已打开时直接写入归档
+     */
+    private synchronized void putResource(String name, byte[] data) throws IOException {
+        if (sink != null) {
+            sink.put(docLoc("Res", name), data);
+        } else {
+            docDir.addResource(name, data);
+        }
+    }
+
+    /**
+     * 文档目录下的条目路径
+     */
+    private String docLoc(String... names) {
+        return Paths.get("Doc_" + docDir.getIndex(), names).toString();
+    }
+
+    public synchronized void addPage(int idx) {
         Page page = new Page(getNextRid(), String.format("Pages/Page_%d/Content.xml", idx));
         docDir.getDocument().getPages().addPage(page);
     }
 
 
+    /**
+     * 添加模板页，模板内容在参照页绘制完成后设置
+     *
+     * @param index 模板序号，从0开始
+     * @return 模板页ID
+     */
+    public synchronized String addTemplatePage(int index) {
+        if (docDir.getTpls() == null) {
+            docDir.setTpls(new TemplatesDir());
+        }
+        long currentId = this.getNextRid();
+        CT_TemplatePage templatePage = new CT_TemplatePage();
+        templatePage.addAttribute("ID", String.valueOf(currentId));
+        templatePage.addAttribute("BaseLoc", String.format("Tpls/Tpl_%d/Content.xml", index));
+        docDir.getDocument().getCommonData().add(templatePage);
+        docDir.getTpls().add(new TemplateDir().setIndex(index));
+        return String.valueOf(currentId);
+    }
+
+    /**
+     * 设置模板页内容
+     *
+     * @param index   模板序号
+     * @param content Content.xml内容
+     */
+    public synchronized void setTemplateContent(int index, byte[] content) throws IOException {
+        if (sink != null) {
+            sink.put(docLoc("Tpls", "Tpl_" + index, "Content.xml"), content);
+        } else {
+            docDir.getTpls().get(index).setContentOfData(content);
+        }
+    }
+
+    /**
+     * 打开模板页内容输出，关闭输出流即完成模板内容
+     * <p>
+     * 输出已打开时直接写入归档条目，否则关闭后通过{@link #setTemplateContent(int, byte[])}保留在内存中
+     *
+     * @param index 模板序号
+     * @return Content.xml输出流
+     * @throws IOException IO异常
+     */
+    public synchronized OutputStream openTemplateContent(int index) throws IOException {
+        if (sink != null) {
+            return sink.open(docLoc("Tpls", "Tpl_" + index, "Content.xml"));
+        }
+        return new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                setTemplateContent(index, toByteArray());
+            }
+        };
+    }
+
     public CT_Layer createLayer() {
         CT_Layer layerInv = new CT_Layer();
         layerInv.setObjID(new ST_ID(getNextRid()));
         return layerInv;
     }
 
-    public void addPageContent(int idx, CT_Layer ctLayer, float width, float height) {
+    public synchronized void addPageContent(int idx, CT_Layer ctLayer, float width, float height) throws IOException {
+        addPageContent(idx, ctLayer, width, height, null);
+    }
+
+    /**
+     * 添加页面内容
+     *
+     * @param idx        页码
+     * @param ctLayer    图层
+     * @param width      页面宽度
+     * @param height     页面高度
+     * @param templateId 页面使用的模板ID，为null时不使用模板
+     */
+    public synchronized void addPageContent(int idx, CT_Layer ctLayer, float width, float height, String templateId)
+            throws IOException {
         PageDir pageDirInv = new PageDir();
         pageDirInv.setIndex(idx);
         org.ofdrw.core.basicStructure.pageObj.Page pageInv = new org.ofdrw.core.basicStructure.pageObj.Page();
+        if (templateId != null) {
+            OFDElement template = OFDElement.getInstance("Template");
+            template.addAttribute("TemplateID", templateId);
+            template.addAttribute("ZOrder", "Background");
+            pageInv.add(template);
+        }
         CT_PageArea areaInv = new CT_PageArea();
-        areaInv.setPhysicalBox(0, 0, width, height);
+        areaInv.setPhysicalBox(0, 0, FixedFormat.round(width, coordinatePrecision),
+                FixedFormat.round(height, coordinatePrecision));
         pageInv.setArea(areaInv);
         Content contentInv = new Content();
         contentInv.addLayer(ctLayer);
         pageInv.setContent(contentInv);
-        pageDirInv.setContent(pageInv);
+        if (sink != null) {
+            DocObjDump.dump(pageInv, pageLoc(idx), sink);
+        } else {
+            pageDirInv.setContent(pageInv);
+        }
+        docDir.getPages().add(pageDirInv);
+    }
+
+    /**
+     * 添加已序列化的页面内容
+     *
+     * @param idx     页码
+     * @param content Content.xml内容
+     */
+    public synchronized void addPageContent(int idx, byte[] content) throws IOException {
+        PageDir pageDirInv = new PageDir();
+        pageDirInv.setIndex(idx);
+        if (sink != null) {
+            sink.put(pageLoc(idx), content);
+        } else {
+            pageDirInv.setContentOfData(content);
+        }
+        docDir.getPages().add(pageDirInv);
+    }
+
+    /**
+     * 打开页面内容输出，关闭输出流即完成该页
+     * <p>
+     * 输出已打开时直接写入归档条目，否则关闭后通过{@link #addPageContent(int, byte[])}保留在内存中
+     *
+     * @param idx 页码
+     * @return Content.xml输出流
+     * @throws IOException IO异常
+     */
+    public synchronized OutputStream openPageContent(int idx) throws IOException {
+        if (sink == null) {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    addPageContent(idx, toByteArray());
+                }
+            };
+        }
+        OutputStream output = sink.open(pageLoc(idx));
+        PageDir pageDirInv = new PageDir();
+        pageDirInv.setIndex(idx);
         docDir.getPages().add(pageDirInv);
+        return output;
+    }
+
+    /**
+     * 页面内容的条目路径
+     */
+    private String pageLoc(int idx) {
+        return docLoc("Pages", "Page_" + idx, "Content.xml");
     }
 
     public byte[] jar() throws IOException {
-        docDir.getDocument().getCommonData().setMaxUnitID(getCurrRid());
-        Map<String, byte[]> virtualFileMap = new ConcurrentHashMap<>(64);
-        return ofdDir.jar(virtualFileMap);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        jar(bos);
+        return bos.toByteArray();
     }
 
+    /**
+     * 打包OFD，相当于{@link #open(OutputStream, int)}后{@link #finish()}
+     * <p>
+     * 未预先打开输出时，所有资源及页面内容在此之前都保留在内存中
+     *
+     * @param output OFD输出流
+     */
     public void jar(OutputStream output) throws IOException {
-        docDir.getDocument().getCommonData().setMaxUnitID(getCurrRid());
-        Map<String, byte[]> virtualFileMap = new ConcurrentHashMap<>(64);
-        ofdDir.jar(virtualFileMap, output);
+        jar(output, 1);
+    }
+
+    /**
+     * 打包OFD，多线程压缩
+     *
+     * @param parallelism 压缩线程数，小于等于1时单线程压缩
+     */
+    public byte[] jar(int parallelism) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        jar(bos, parallelism);
+        return bos.toByteArray();
+    }
+
+    /**
+     * 打包OFD，多线程压缩
+     *
+     * @param parallelism 压缩线程数，小于等于1时单线程压缩
+     */
+    public void jar(OutputStream output, int parallelism) throws IOException {
+        open(output, parallelism);
+        finish();
+    }
+
+    /**
+     * 嵌入的字体文件及其使用到的字形
+     */
+    private static class EmbeddedFont {
+        final String name;
+        final byte[] data;
+        final Set<Integer> glyphIds = new HashSet<>();
+        boolean full = false;
+
+        EmbeddedFont(String name, byte[] data) {
+            this.name = name;
+            this.data = data;
+        }
     }
 }
@@ -4,47 +4,54 @@ package org.ofd.render;
 import org.apache.commons.io.IOUtils;
 import org.apache.fontbox.ttf.CmapLookup;
 import org.apache.fontbox.ttf.TrueTypeFont;
-import org.apache.fontbox.util.BoundingBox;
 import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.common.PDStream;
 import org.apache.pdfbox.pdmodel.font.*;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDICCBased;
+import org.apache.pdfbox.pdmodel.graphics.color.PDIndexed;
+import org.apache.pdfbox.pdmodel.graphics.color.PDSpecialColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.PDLineDashPattern;
 import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
 import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
 import org.apache.pdfbox.text.TextPosition;
 import org.apache.pdfbox.util.Matrix;
 import org.apache.pdfbox.util.Vector;
-import org.bouncycastle.crypto.Digest;
-import org.bouncycastle.crypto.digests.MD5Digest;
 import org.dom4j.Element;
+import org.ofd.render.config.OfdResIdDefine;
+import org.ofd.render.utils.DigestUtil;
+import org.ofd.render.utils.FixedFormat;
+import org.ofd.render.utils.PathEncoder;
+import org.ofd.render.utils.PathSimplifier;
 import org.ofdrw.core.OFDElement;
 import org.ofdrw.core.basicStructure.pageObj.layer.CT_Layer;
-import org.ofdrw.core.basicStructure.pageObj.layer.block.ImageObject;
-import org.ofdrw.core.basicStructure.pageObj.layer.block.PathObject;
-import org.ofdrw.core.basicStructure.pageObj.layer.block.TextObject;
-import org.ofdrw.core.basicType.ST_Array;
-import org.ofdrw.core.basicType.ST_ID;
-import org.ofdrw.core.basicType.ST_RefID;
-import org.ofdrw.core.graph.pathObj.AbbreviatedData;
-import org.ofdrw.core.graph.pathObj.CT_Path;
-import org.ofdrw.core.pageDescription.clips.CT_Clip;
-import org.ofdrw.core.pageDescription.clips.Clips;
-import org.ofdrw.core.pageDescription.color.color.CT_Color;
-import org.ofdrw.core.text.CT_CGTransform;
-import org.ofdrw.core.text.TextCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.geom.*;
-import java.io.ByteArrayOutputStream;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class OFDPageDrawer extends PDFGraphicsStreamEngine {
@@ -54,6 +61,7 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
     private int clipWindingRule = -1;
 
     private OFDCreator ofdCreator;
+    private PageContentWriter contentWriter;
     private CT_Layer ctLayer;
     private float scale;
     private PDPage page;
@@ -62,24 +70,404 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
 
     private Area lastClip;
 
+    private int idx;
+
+    /**
+     * 转换Form为复合图元时调用处的图形状态，在处理第一个操作符前应用
+     */
+    private PDGraphicsState inheritedState;
+
+    /**
+     * 页面使用模板时，内容流前templateOps个操作符绘制的对象属于模板
+     */
+    private int templateOps;
+
+    /**
+     * 模板内容输出，为null时模板部分的对象不输出（模板由参照页绘制）
+     */
+    private PageContentWriter templateWriter;
+
+    /**
+     * 已处理的页面内容流操作符数
+     */
+    private int opIndex;
+
+    /**
+     * 操作符嵌套深度，Form等内容流中的操作符不计数
+     */
+    private int opDepth;
+
+    /**
+     * 当前操作符是否属于模板
+     */
+    private boolean inTemplate;
+
+    /**
+     * 路径编码，每页复用
+     */
+    private final PathEncoder pathEncoder;
+    private final double[] coords = new double[6];
+
+    /**
+     * 路径简化，容差为0时不简化
+     */
+    private final PathSimplifier pathSimplifier;
+
+    /**
+     * 一个路径对象最多合并的路径数
+     */
+    private static final int MAX_MERGED_PATHS = 256;
+
+    /**
+     * 尚未输出的路径对象的ID及绘制属性，输出时按所有路径的范围计算外接矩形并编码路径数据
+     */
+    private long pendingId;
+    private DrawStyle pendingStyle;
+    private String pendingSignature;
+    private boolean pendingTemplate;
+    private final List<Rectangle2D> pendingBounds = new ArrayList<>();
+    private final List<GeneralPath> pendingShapes = new ArrayList<>();
+    /**
+     * 合并路径包括线宽在内的范围（设备空间）
+     */
+    private final Rectangle2D pendingExtent = new Rectangle2D.Double();
+
+    private static final double MM_PER_INCH = 25.4;
+
+    /**
+     * 变换矩阵缩放、旋转分量的小数位数
+     */
+    private static final int MATRIX_PRECISION = 6;
+
+    /**
+     * 图片空间
+     */
+    private static final Rectangle2D UNIT_SQUARE = new Rectangle2D.Double(0, 0, 1, 1);
+
+    /**
+     * 字体信息缓存，同一文档的页面共用
+     */
+    private FontCache fontCache = new FontCache();
+
+    /**
+     * 当前Do操作符引用的XObject的对象号，用作图片、Form的缓存键
+     */
+    private String xObjectRef;
+
+    /**
+     * 是否丢弃不可见的对象，复合图元的内容由使用处决定是否可见，不丢弃
+     */
+    private boolean culling;
+
+    /**
+     * 计算可见范围时的裁剪区域，用于判断裁剪区域是否变化
+     */
+    private Area visibleClip;
+
+    /**
+     * 页面与当前裁剪区域外接矩形的交集（设备空间），为null时没有可见区域
+     */
+    private Rectangle2D visibleBounds;
+
+    /**
+     * OFD默认的斜接长度限制
+     */
+    private static final String DEFAULT_MITER_LIMIT = "3.528";
+
+    /**
+     * 坐标小数位数（毫米）
+     */
+    private final int precision;
+
+    private static final COSName[] FONT_FILES = {COSName.FONT_FILE3, COSName.FONT_FILE2, COSName.FONT_FILE};
+
+    /**
+     * @return 图层，流式输出页面内容时为null
+     */
     public CT_Layer getCtLayer() {
-        // 获取时，从队列添加
-        for (Element ele : queue) {
-            ctLayer.add(ele);
-        }
         return ctLayer;
     }
 
     protected OFDPageDrawer(int idx, PDPage page, OFDCreator ofdCreator, float scale) throws IOException {
+        this(idx, page, ofdCreator, scale, null);
+    }
+
+    /**
+     * @param contentWriter 页面内容输出，为null时构建图层DOM
+     */
+    protected OFDPageDrawer(int idx, PDPage page, OFDCreator ofdCreator, float scale,
+                            PageContentWriter contentWriter) throws IOException {
         super(page);
+        this.idx = idx;
         this.page = page;
         this.ofdCreator = ofdCreator;
-        ctLayer = this.ofdCreator.createLayer();
         this.scale = scale;
+        this.pathSimplifier = new PathSimplifier(ofdCreator.getPathTolerance());
+        this.precision = ofdCreator.getCoordinatePrecision();
+        this.culling = ofdCreator.isCullInvisible();
+        this.pathEncoder = new PathEncoder(precision);
+        if (contentWriter == null) {
+            ctLayer = this.ofdCreator.createLayer();
+            contentWriter = new DomPageContentWriter(ctLayer,
+                    page.getCropBox().getWidth() * scale, page.getCropBox().getHeight() * scale);
+        } else if (contentWriter instanceof DomPageContentWriter) {
+            ctLayer = ((DomPageContentWriter) contentWriter).getCtLayer();
+        }
+        this.contentWriter = contentWriter;
     }
 
     public void drawPage() throws IOException {
         processPage(this.getPage());
+        flushPath();
+        flushTextRun();
+    }
+
+    /**
+     * 设置页面模板
+     * <p>
+     * 所有操作符仍按顺序处理以保持图形状态，前templateOps个操作符绘制的对象
+     * 输出到模板，不再输出到页面。
+     *
+     * @param templateOps    模板包含的页面内容流操作符数
+     * @param templateWriter 模板内容输出，为null时丢弃模板部分的对象
+     */
+    void setTemplate(int templateOps, PageContentWriter templateWriter) {
+        this.templateOps = templateOps;
+        this.templateWriter = templateWriter;
+    }
+
+    /**
+     * 设置字体信息缓存，同一文档的页面共用一个缓存，未设置时每页单独缓存
+     *
+     * @param fontCache 字体信息缓存，缓存中的字体对象须属于当前页面所在的文档
+     */
+    void setFontCache(FontCache fontCache) {
+        this.fontCache = fontCache;
+    }
+
+    /**
+     * 开始输出页面对象：先输出尚未输出的路径和文字，保持绘制顺序
+     *
+     * @return 当前对象的输出，属于模板的对象输出到模板，丢弃时为null
+     */
+    private PageContentWriter emit() throws IOException {
+        flushPath();
+        flushTextRun();
+        return writerOf(inTemplate);
+    }
+
+    private PageContentWriter writerOf(boolean template) {
+        return template ? templateWriter : contentWriter;
+    }
+
+    /**
+     * @return 当前绘制的对象是否被丢弃，此时可以跳过图片、Form等开销较大的处理
+     */
+    private boolean isDiscarding() {
+        return inTemplate && templateWriter == null;
+    }
+
+    /**
+     * 重复使用的Form转换为复合图元，使用处输出CompositeObject
+     * <p>
+     * 第一次使用时按原方式绘制，避免只使用一次的Form也生成复合图元；
+     * 复合图元的坐标系与页面相同，超出页面范围的Form按原方式绘制。
+     * 复合图元不带使用处的裁剪区域，Form超出当前裁剪区域时也按原方式绘制。
+     */
+    @Override
+    public void showForm(PDFormXObject form) throws IOException {
+        if (isDiscarding()) {
+            return;
+        }
+        if (!ofdCreator.isCompositeForms() || !isInsidePage(form) || !isInsideClip(form)) {
+            super.showForm(form);
+            return;
+        }
+        FormCache formCache = ofdCreator.getFormCache();
+        PDFont font = getGraphicsState().getTextState().getFont();
+        Object formKey = formCache.keyOf(xObjectRef, getGraphicsState(), font == null ? null : fontKey(font),
+                ofdCreator.getColorCache());
+        if (formKey == null) {
+            super.showForm(form);
+            return;
+        }
+        String unitId = formCache.get(formKey);
+        if (unitId == null) {
+            if (formCache.use(formKey) < 2) {
+                super.showForm(form);
+                return;
+            }
+            unitId = createCompositeUnit(form);
+            formCache.put(formKey, unitId);
+        }
+        PageContentWriter writer = emit();
+        if (writer != null) {
+            addCompositeObject(writer, unitId);
+        }
+    }
+
+    /**
+     * Form的范围是否在复合图元的范围内
+     * <p>
+     * 复合图元的内容按Form自身的矩阵绘制，不含使用处的变换，外接矩形为[0, 0, 页面宽, 页面高]，
+     * 与裁剪框的原点无关；使用处的裁剪框及裁剪区域由{@link #isInsideClip}判断。
+     */
+    private boolean isInsidePage(PDFormXObject form) {
+        PDRectangle bbox = form.getBBox();
+        if (bbox == null) {
+            return false;
+        }
+        Rectangle2D bounds = bbox.transform(form.getMatrix()).getBounds2D();
+        PDRectangle cropBox = page.getCropBox();
+        return bounds.getMinX() >= 0 && bounds.getMinY() >= 0
+                && bounds.getMaxX() <= cropBox.getWidth() && bounds.getMaxY() <= cropBox.getHeight();
+    }
+
+    /**
+     * Form在使用处的范围是否在当前裁剪区域内
+     */
+    private boolean isInsideClip(PDFormXObject form) {
+        PDRectangle bbox = form.getBBox();
+        if (bbox == null) {
+            return false;
+        }
+        Matrix matrix = form.getMatrix().multiply(getGraphicsState().getCurrentTransformationMatrix());
+        Rectangle2D bounds = bbox.transform(matrix).getBounds2D();
+        return getGraphicsState().getCurrentClippingPath().contains(bounds);
+    }
+
+    /**
+     * 转换Form为复合图元
+     *
+     * @return 复合图元ID
+     */
+    private String createCompositeUnit(PDFormXObject form) throws IOException {
+        PDRectangle cropBox = page.getCropBox();
+        CompositeUnitWriter unitWriter = new CompositeUnitWriter(cropBox.getWidth() * scale, cropBox.getHeight() * scale);
+        OFDPageDrawer formDrawer = new OFDPageDrawer(idx, page, ofdCreator, scale, unitWriter);
+        formDrawer.culling = false;
+        formDrawer.fontCache = fontCache;
+        formDrawer.drawForm(form, getGraphicsState());
+        unitWriter.addTo(ofdCreator, idx);
+        return unitWriter.getUnitId();
+    }
+
+    /**
+     * 在页面坐标系中绘制Form，用于生成复合图元
+     */
+    private void drawForm(PDFormXObject form, PDGraphicsState inherited) throws IOException {
+        inheritedState = inherited;
+        processChildStream(form, page);
+        flushPath();
+        flushTextRun();
+    }
+
+    @Override
+    protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+        if (inheritedState != null) {
+            // Form继承调用处的颜色、线宽、线型、透明度和文字状态，变换矩阵和裁剪区保持Form自身的
+            PDGraphicsState state = getGraphicsState();
+            state.setStrokingColorSpace(inheritedState.getStrokingColorSpace());
+            state.setNonStrokingColorSpace(inheritedState.getNonStrokingColorSpace());
+            state.setStrokingColor(inheritedState.getStrokingColor());
+            state.setNonStrokingColor(inheritedState.getNonStrokingColor());
+            state.setLineWidth(inheritedState.getLineWidth());
+            state.setLineCap(inheritedState.getLineCap());
+            state.setLineJoin(inheritedState.getLineJoin());
+            state.setMiterLimit(inheritedState.getMiterLimit());
+            state.setLineDashPattern(inheritedState.getLineDashPattern());
+            state.setAlphaConstant(inheritedState.getAlphaConstant());
+            state.setNonStrokeAlphaConstant(inheritedState.getNonStrokeAlphaConstant());
+            state.setBlendMode(inheritedState.getBlendMode());
+            state.setTextState(inheritedState.getTextState().clone());
+            inheritedState = null;
+        }
+        if (opDepth == 0 && templateOps > 0) {
+            inTemplate = opIndex++ < templateOps;
+        }
+        // 只在Do操作符内有效，Form及Type3字形中的其他操作符（如内嵌图片）不沿用外层的对象号
+        String outerXObjectRef = xObjectRef;
+        xObjectRef = OperatorName.DRAW_OBJECT.equals(operator.getName()) ? getXObjectRef(operands) : null;
+        opDepth++;
+        try {
+            super.processOperator(operator, operands);
+        } finally {
+            opDepth--;
+            xObjectRef = outerXObjectRef;
+        }
+    }
+
+    /**
+     * Do操作符引用的XObject在文档中的对象号，XObject直接定义在资源中时返回null
+     */
+    private String getXObjectRef(List<COSBase> operands) {
+        PDResources resources = getResources();
+        if (operands.isEmpty() || !(operands.get(0) instanceof COSName) || resources == null) {
+            return null;
+        }
+        COSBase xObjects = resources.getCOSObject().getDictionaryObject(COSName.XOBJECT);
+        if (!(xObjects instanceof COSDictionary)) {
+            return null;
+        }
+        COSBase item = ((COSDictionary) xObjects).getItem((COSName) operands.get(0));
+        if (item instanceof COSObject) {
+            COSObject obj = (COSObject) item;
+            return "obj_" + obj.getObjectNumber() + "_" + obj.getGenerationNumber();
+        }
+        return null;
+    }
+
+    /**
+     * 输出引用复合图元的CompositeObject
+     * <p>
+     * 复合图元在页面坐标系（毫米，y轴向下）中绘制，使用处的PDF变换矩阵[a b c d e f]
+     * 换算到该坐标系为[a -b -c d s(c*H+e) s(H-d*H-f)]，s为缩放比例，H为页面高度。
+     */
+    private void addCompositeObject(PageContentWriter writer, String unitId) throws IOException {
+        Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+        PDRectangle cropBox = page.getCropBox();
+        float height = cropBox.getHeight();
+        String ctmValue = fmtMatrix(ctm.getScaleX()) + " " + fmtMatrix(-ctm.getShearY()) + " "
+                + fmtMatrix(-ctm.getShearX()) + " " + fmtMatrix(ctm.getScaleY()) + " "
+                + fmt(scale * (ctm.getShearX() * height + ctm.getTranslateX())) + " "
+                + fmt(scale * (height - ctm.getScaleY() * height - ctm.getTranslateY()));
+        writer.addComposite(ofdCreator.getNextRid(), round(cropBox.getWidth() * scale), round(height * scale),
+                ctmValue, unitId);
+    }
+
+    /**
+     * 按坐标精度格式化
+     */
+    private String fmt(double value) {
+        return FixedFormat.format(value, precision);
+    }
+
+    /**
+     * 按坐标精度四舍五入，用于交给页面内容输出的坐标
+     */
+    private double round(double value) {
+        return FixedFormat.round(value, precision);
+    }
+
+    /**
+     * 格式化变换矩阵的缩放、旋转分量，这些分量会放大误差，使用更高的精度
+     */
+    private static String fmtMatrix(double value) {
+        return FixedFormat.format(value, MATRIX_PRECISION);
+    }
+
+    /**
+     * 两个位置按坐标精度四舍五入后的差，逐个字形累加时误差不会累积
+     */
+    private String fmtDelta(double to, double from) {
+        return fmt(round(to) - round(from));
+    }
+
+    /**
+     * @return 页面内容输出
+     */
+    public PageContentWriter getContentWriter() {
+        return contentWriter;
     }
 
 
@@ -94,96 +482,236 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
 
     @Override
     public void drawImage(PDImage pdImage) throws IOException {
-        ByteArrayOutputStream bosImage = new ByteArrayOutputStream();
-        String suffix = "png";
-        ImageIO.write(pdImage.getImage(), suffix, bosImage);
-        String name = String.format("%s.%s", bcMD5(bosImage.toByteArray()), suffix);
-        ofdCreator.putImage(name, bosImage.toByteArray(), suffix);
-
+        if (isDiscarding()) {
+            return;
+        }
         Matrix ctmNew = this.getGraphicsState().getCurrentTransformationMatrix();
+        if (!isVisible(ctmNew.createAffineTransform().createTransformedShape(UNIT_SQUARE).getBounds2D())) {
+            return;
+        }
         float imageXScale = ctmNew.getScalingFactorX();
         float imageYScale = ctmNew.getScalingFactorY();
         double x = ctmNew.getTranslateX() * scale;
         double y = (page.getCropBox().getHeight() - ctmNew.getTranslateY() - imageYScale) * scale;
         double w = imageXScale * scale;
         double h = imageYScale * scale;
-        ImageObject imageObject = new ImageObject(ofdCreator.getNextRid());
-        imageObject.setBoundary(x, y, w, h);
-        imageObject.setResourceID(new ST_RefID(ST_ID.getInstance(ofdCreator.getImageMap().get(name))));
-        imageObject.setCTM(ST_Array.getInstance(String.format("%.0f 0 0 %.0f 0 0", w, h)));
-        setImageClip(imageObject, x, y, w, h);
-        ctLayer.add(imageObject);
+
+        // 按图片在页面上的尺寸计算目标像素尺寸
+        int imageWidth = pdImage.getWidth();
+        int imageHeight = pdImage.getHeight();
+        float maxDpi = ofdCreator.getImagePolicy().getMaxDpi();
+        if (maxDpi > 0 && w > 0 && h > 0) {
+            double dpi = Math.min(imageWidth / (w / MM_PER_INCH), imageHeight / (h / MM_PER_INCH));
+            if (dpi > maxDpi) {
+                double factor = maxDpi / dpi;
+                imageWidth = Math.max(1, (int) Math.round(imageWidth * factor));
+                imageHeight = Math.max(1, (int) Math.round(imageHeight * factor));
+            }
+        }
+
+        // 重复绘制的图片直接引用已生成的资源
+        ImageCache imageCache = ofdCreator.getImageCache();
+        // 内嵌图片没有对象号，始终按图片数据的摘要缓存
+        String imageRef = pdImage instanceof PDImageXObject ? xObjectRef : null;
+        Object imageKey = imageCache.keyOf(pdImage, imageRef, imageWidth, imageHeight);
+        String imageId = imageCache.get(imageKey);
+        if (imageId == null) {
+            imageId = putImage(pdImage, imageWidth, imageHeight);
+            imageCache.put(imageKey, imageId);
+        }
+
+        x = round(x);
+        y = round(y);
+        w = round(w);
+        h = round(h);
+        long id = ofdCreator.getNextRid();
+        ImageClip clip = getImageClip(x, y, w, h);
+        PageContentWriter writer = emit();
+        if (writer != null) {
+            writer.addImage(id, x, y, w, h, imageId, clip == null ? null : clip.boundary,
+                    clip == null ? null : clip.data);
+        }
+    }
+
+    /**
+     * 转换图片并添加到资源
+     *
+     * @param width  目标宽度（像素）
+     * @param height 目标高度（像素）
+     * @return 图片资源ID
+     */
+    private String putImage(PDImage pdImage, int width, int height) throws IOException {
+        boolean scaled = width < pdImage.getWidth() || height < pdImage.getHeight();
+        byte[] imageBytes = scaled ? null : getJpegData(pdImage);
+        if (imageBytes != null) {
+            // JPEG图片直接使用原始数据
+            String name = String.format("%s.%s", DigestUtil.md5Hex(imageBytes), "jpg");
+            ofdCreator.putImage(name, imageBytes, "jpeg");
+            return ofdCreator.getImageMap().get(name);
+        }
+        // 解码在绘制线程中进行，缩放和编码交给图片编码线程池
+        int subsampling = getSubsampling(pdImage, width, height);
+        BufferedImage image = subsampling > 1 ? pdImage.getImage(null, subsampling) : pdImage.getImage();
+        return ofdCreator.putImage(image, getImageKind(pdImage), width, height);
+    }
+
+    /**
+     * 计算解码时的采样间隔
+     * <p>
+     * 需要缩小的图片按不小于目标尺寸的间隔采样解码；解码后超过内存上限的图片
+     * 加大采样间隔，不再完整解码原图。
+     */
+    private int getSubsampling(PDImage pdImage, int width, int height) {
+        int subsampling = Math.max(1, Math.min(pdImage.getWidth() / Math.max(1, width),
+                pdImage.getHeight() / Math.max(1, height)));
+        long maxMemory = ofdCreator.getImagePolicy().getMaxImageMemory();
+        if (maxMemory > 0) {
+            // 解码结果按每像素4字节估算
+            double bytes = (double) pdImage.getWidth() * pdImage.getHeight() * 4;
+            int memSubsampling = (int) Math.ceil(Math.sqrt(bytes / maxMemory));
+            if (memSubsampling > subsampling) {
+                logger.info("图片{}x{}超过内存上限，采样间隔{}", pdImage.getWidth(), pdImage.getHeight(), memSubsampling);
+                subsampling = memSubsampling;
+            }
+        }
+        return subsampling;
+    }
+
+    /**
+     * 根据颜色空间和位深确定图片类型
+     */
+    private ImageEncoder.Kind getImageKind(PDImage pdImage) {
+        if (pdImage.isStencil()) {
+            // 模板图片（ImageMask）只有1位的遮罩数据，按二值图片无损编码
+            return ImageEncoder.Kind.BILEVEL;
+        }
+        try {
+            PDColorSpace colorSpace = pdImage.getColorSpace();
+            if (colorSpace instanceof PDIndexed) {
+                return ImageEncoder.Kind.INDEXED;
+            }
+            if (colorSpace.getNumberOfComponents() == 1 && !(colorSpace instanceof PDSpecialColorSpace)) {
+                return pdImage.getBitsPerComponent() == 1 ? ImageEncoder.Kind.BILEVEL : ImageEncoder.Kind.GRAY;
+            }
+        } catch (IOException e) {
+            logger.warn("读取图片颜色空间异常", e);
+        }
+        return ImageEncoder.Kind.COLOR;
+    }
+
+    /**
+     * 获取可直接写入OFD的JPEG数据
+     * <p>
+     * 只处理DCTDecode编码、8位灰度或RGB、无蒙版且未使用Decode数组反转的图片，
+     * 其余情况（CMYK、蒙版、索引色等）返回null，需要解码后重新编码。
+     */
+    private byte[] getJpegData(PDImage pdImage) {
+        if (!"jpg".equals(pdImage.getSuffix()) || pdImage.isStencil() || pdImage.getBitsPerComponent() != 8) {
+            return null;
+        }
+        try {
+            if (pdImage instanceof PDImageXObject) {
+                PDImageXObject xObject = (PDImageXObject) pdImage;
+                if (xObject.getSoftMask() != null || xObject.getMask() != null || xObject.getColorKeyMask() != null) {
+                    return null;
+                }
+            }
+            PDColorSpace colorSpace = pdImage.getColorSpace();
+            if (!(colorSpace instanceof PDDeviceGray || colorSpace instanceof PDDeviceRGB
+                    || colorSpace instanceof PDICCBased && colorSpace.getNumberOfComponents() != 4)) {
+                return null;
+            }
+            COSArray decode = pdImage.getDecode();
+            if (decode != null) {
+                float[] values = decode.toFloatArray();
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != i % 2) {
+                        return null;
+                    }
+                }
+            }
+            // 解码DCTDecode之前的过滤器，保留JPEG数据
+            try (InputStream is = pdImage.createInputStream(Collections.singletonList(COSName.DCT_DECODE.getName()))) {
+                return IOUtils.toByteArray(is);
+            }
+        } catch (IOException e) {
+            logger.warn("读取JPEG图片数据异常", e);
+            return null;
+        }
     }
 
-    private String getPointsFromClipArea(Area area, double x, double y, double w, double h) {
-        String abbreviatedData = "";
-        double[] coords = new double[6];
+    /**
+     * 裁剪区域转换为相对图片的路径数据
+     *
+     * @param unitPrecision 图片单位坐标的小数位数
+     */
+    private PathEncoder getPointsFromClipArea(Area area, double x, double y, double w, double h, int unitPrecision) {
+        PathEncoder clipEncoder = new PathEncoder(unitPrecision);
+        float height = page.getCropBox().getHeight();
         for (PathIterator pi = area.getPathIterator(null);
              !pi.isDone();
              pi.next()) {
             switch (pi.currentSegment(coords)) {
                 case PathIterator.SEG_MOVETO:
-                    abbreviatedData += String.format("M %.1f %.1f ", (coords[0] * scale - x) / w, ((page.getCropBox().getHeight() - coords[1]) * scale - y) / h);
+                    clipEncoder.moveTo((coords[0] * scale - x) / w, ((height - coords[1]) * scale - y) / h);
                     break;
                 case PathIterator.SEG_LINETO:
-                    abbreviatedData += String.format("L %.1f %.1f ", (coords[0] * scale - x) / w, ((page.getCropBox().getHeight() - coords[1]) * scale - y) / h);
+                    clipEncoder.lineTo((coords[0] * scale - x) / w, ((height - coords[1]) * scale - y) / h);
                     break;
                 case PathIterator.SEG_CUBICTO:
-                    abbreviatedData += String.format("B %.1f %.1f %.1f %.1f %.1f %.1f ", (coords[0] * scale - x) / w, ((page.getCropBox().getHeight() - coords[1]) * scale - y) / h, (coords[2] * scale - x) / w, ((page.getCropBox().getHeight() - coords[3]) * scale - y) / h, (coords[4] * scale - x) / w, ((page.getCropBox().getHeight() - coords[5]) * scale - y) / h);
+                    clipEncoder.cubicTo((coords[0] * scale - x) / w, ((height - coords[1]) * scale - y) / h,
+                            (coords[2] * scale - x) / w, ((height - coords[3]) * scale - y) / h,
+                            (coords[4] * scale - x) / w, ((height - coords[5]) * scale - y) / h);
                     break;
                 case PathIterator.SEG_CLOSE:
-                    abbreviatedData += " C";
+                    clipEncoder.close();
             }
         }
-        return abbreviatedData;
+        return clipEncoder;
     }
 
-    private void setImageClip(ImageObject imageObject, double ix, double iy, double iw, double ih) {
+    /**
+     * 图片单位坐标（0~1）放大图片尺寸倍后才是页面坐标，按尺寸的位数增加小数位，误差与页面坐标精度一致
+     */
+    private int getUnitPrecision(double iw, double ih) {
+        int digits = (int) Math.ceil(Math.log10(Math.max(Math.max(iw, ih), 1)));
+        return Math.min(precision + digits, MATRIX_PRECISION);
+    }
+
+    /**
+     * 图片的裁剪路径，裁剪区域未变化或不需要裁剪时返回null
+     */
+    private ImageClip getImageClip(double ix, double iy, double iw, double ih) {
         Area clippingPath = this.getGraphicsState().getCurrentClippingPath();
         if (clippingPath != lastClip) {
             if (clippingPath.getPathIterator((AffineTransform) null).isDone()) {
-                return;
+                return null;
             } else {
                 double w = (clippingPath.getBounds().width * scale);
                 double h = (clippingPath.getBounds().height * scale);
                 double x = (clippingPath.getBounds().x * scale);
                 double y = (page.getCropBox().getHeight() - clippingPath.getBounds().y - clippingPath.getBounds().height) * scale;
-                x = Double.parseDouble(String.format("%.2f", x));
-                y = Double.parseDouble(String.format("%.2f", y));
-                w = Double.parseDouble(String.format("%.0f", w));
-                h = Double.parseDouble(String.format("%.0f", h));
+                x = round(x);
+                y = round(y);
+                w = round(w);
+                h = round(h);
                 double clipX = Math.abs(x - ix) / iw;
                 double clipY = Math.abs(y - iy) / ih;
                 double clipW = w / iw;
                 double clipH = h / ih;
                 lastClip = clippingPath;
-                String abbreviatedData = getPointsFromClipArea(clippingPath, x, y, w, h);
-                if (abbreviatedData.contains("B") || (clipX >= 0 && clipY >= 0 && (clipW >= 0 && clipW <= 1) && (clipH >= 0 && clipH <= 1))) {
-                    OFDElement abbreviatedDataEle = OFDElement.getInstance("AbbreviatedData");
-                    abbreviatedDataEle.setText(abbreviatedData);
-                    CT_Path ctPath = new CT_Path();
-                    ctPath.setFill(true);
-                    ctPath.setStroke(false);
-                    ctPath.setBoundary(clipX, clipY, clipW, clipH);
-                    ctPath.add(abbreviatedDataEle);
-                    org.ofdrw.core.pageDescription.clips.Area area = new org.ofdrw.core.pageDescription.clips.Area();
-                    area.add(ctPath);
-                    CT_Clip ct_clip = new CT_Clip();
-                    ct_clip.addArea(area);
-                    Clips clips = new Clips();
-                    clips.addClip(ct_clip);
-                    imageObject.setClips(clips);
+                int unitPrecision = getUnitPrecision(iw, ih);
+                PathEncoder abbreviatedData = getPointsFromClipArea(clippingPath, x, y, w, h, unitPrecision);
+                if (abbreviatedData.hasCurve() || (clipX >= 0 && clipY >= 0 && (clipW >= 0 && clipW <= 1) && (clipH >= 0 && clipH <= 1))) {
+                    String boundary = FixedFormat.format(clipX, unitPrecision) + " "
+                            + FixedFormat.format(clipY, unitPrecision) + " "
+                            + FixedFormat.format(clipW, unitPrecision) + " "
+                            + FixedFormat.format(clipH, unitPrecision);
+                    return new ImageClip(boundary, abbreviatedData);
                 }
             }
         }
-    }
-
-    private String bcMD5(byte[] imageBytes) {
-        Digest digest = new MD5Digest();
-        digest.update(imageBytes, 0, imageBytes.length);
-        byte[] md5Bytes = new byte[digest.getDigestSize()];
-        digest.doFinal(md5Bytes, 0);
-        return org.bouncycastle.util.encoders.Hex.toHexString(md5Bytes);
+        return null;
     }
 
     @Override
@@ -222,114 +750,352 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
             linePath.setWindingRule(clipWindingRule);
             getGraphicsState().intersectClippingPath(linePath);
             clipWindingRule = -1;
+            // 同一图形状态中的裁剪区域对象会被修改，不能只按对象引用判断
+            visibleClip = null;
         }
         linePath.reset();
     }
 
     @Override
     public void strokePath() throws IOException {
-        ctLayer.add(getPathObject(false));
+        drawPath(false, true);
         linePath.reset();
     }
 
     @Override
     public void fillPath(int i) throws IOException {
-        ctLayer.add(getPathObject(true));
+        drawPath(true, false);
         linePath.reset();
     }
 
     /**
-     * 获取路径对象
+     * 绘制路径
+     * <p>
+     * 填充、描边参数相同的相邻路径合并为一个路径对象的多个子路径，
+     * 遇到参数变化或其他对象时输出。填充的子路径相互重叠时，
+     * 合并后按非零环绕规则填充的结果可能不同，此时不合并。
      */
-    private PathObject getPathObject(boolean fill) throws IOException {
-        double x = 0, y = 0;
-        float w = page.getCropBox().getWidth() * scale;
-        float h = page.getCropBox().getHeight() * scale;
-        double lineWidth = getGraphicsState().getLineWidth() * scale;
+    private void drawPath(boolean fill, boolean stroke) throws IOException {
+        if (isDiscarding()) {
+            return;
+        }
+        Rectangle2D bounds = linePath.getBounds2D();
+        Rectangle2D extent = stroke ? getStrokeBounds(bounds) : bounds;
+        if (!isVisible(extent)) {
+            return;
+        }
+        // 之前的文字先输出，保持绘制顺序
+        flushTextRun();
+        String signature = getPathSignature(fill, stroke);
+        if (pendingStyle != null && pendingTemplate == inTemplate && signature.equals(pendingSignature)
+                && pendingBounds.size() < MAX_MERGED_PATHS && !(fill && overlapsPending(bounds))) {
+            addPendingShape(bounds, extent);
+            return;
+        }
+        flushPath();
+        pendingId = ofdCreator.getNextRid();
+        pendingStyle = getPathStyle(fill, stroke);
+        pendingSignature = signature;
+        pendingTemplate = inTemplate;
+        addPendingShape(bounds, extent);
+    }
 
-        PathObject path = new PathObject(ST_ID.getInstance(String.valueOf(ofdCreator.getNextRid())));
-        path.setLineWidth(lineWidth);
-        path.setBoundary(x, y, w, h);
-        AbbreviatedData data = new AbbreviatedData();
-        drawLine(linePath.getPathIterator(null), data, h);
-        if (fill) {
-            CT_Color nonStrokeColor = getNonStrokeColor();
-            if (nonStrokeColor != null) {
-                path.setFillColor(nonStrokeColor);
-                path.setFill(true);
-                path.setStroke(false);
+    private void addPendingShape(Rectangle2D bounds, Rectangle2D extent) {
+        if (pendingShapes.isEmpty()) {
+            pendingExtent.setRect(extent);
+        } else {
+            pendingExtent.add(extent);
+        }
+        pendingShapes.add((GeneralPath) linePath.clone());
+        pendingBounds.add(bounds);
+    }
+
+    /**
+     * 描边范围，按线宽及斜接长度向外扩展
+     */
+    private Rectangle2D getStrokeBounds(Rectangle2D bounds) {
+        PDGraphicsState state = getGraphicsState();
+        Matrix ctm = state.getCurrentTransformationMatrix();
+        double lineScale = Math.max(Math.abs(ctm.getScalingFactorX()), Math.abs(ctm.getScalingFactorY()));
+        double extent = state.getLineJoin() == 0 ? Math.max(state.getMiterLimit(), 1) / 2 : Math.sqrt(0.5);
+        // 线宽为0时按最细的线绘制
+        double pad = Math.max(state.getLineWidth() * lineScale * extent, 1);
+        return new Rectangle2D.Double(bounds.getX() - pad, bounds.getY() - pad,
+                bounds.getWidth() + 2 * pad, bounds.getHeight() + 2 * pad);
+    }
+
+    /**
+     * 对象是否可能可见
+     * <p>
+     * 完全位于页面或当前裁剪区域外接矩形之外的对象不可见，在颜色转换、
+     * 图片编码及字体提取之前丢弃。
+     *
+     * @param bounds 对象范围（设备空间）
+     */
+    private boolean isVisible(Rectangle2D bounds) {
+        if (!culling) {
+            return true;
+        }
+        Area clip = getGraphicsState().getCurrentClippingPath();
+        if (clip != visibleClip) {
+            visibleClip = clip;
+            // 裁剪区域与裁剪框一样使用PDF用户空间坐标，裁剪框的原点不一定为0
+            PDRectangle cropBox = page.getCropBox();
+            Rectangle2D pageBounds = new Rectangle2D.Double(cropBox.getLowerLeftX(), cropBox.getLowerLeftY(),
+                    cropBox.getWidth(), cropBox.getHeight());
+            visibleBounds = clip.isEmpty() ? null : pageBounds.createIntersection(clip.getBounds2D());
+        }
+        // 零宽或零高的对象（水平线、竖线）也要判断，不使用Rectangle2D.intersects
+        return visibleBounds != null
+                && bounds.getMaxX() >= visibleBounds.getMinX() && bounds.getMinX() <= visibleBounds.getMaxX()
+                && bounds.getMaxY() >= visibleBounds.getMinY() && bounds.getMinY() <= visibleBounds.getMaxY();
+    }
+
+    private boolean overlapsPending(Rectangle2D bounds) {
+        for (Rectangle2D b : pendingBounds) {
+            if (b.intersects(bounds)) {
+                return true;
             }
+        }
+        return false;
+    }
+
+    /**
+     * 路径合并的判断依据：填充、描边、颜色及线宽
+     */
+    private String getPathSignature(boolean fill, boolean stroke) {
+        PDGraphicsState state = getGraphicsState();
+        StringBuilder sb = new StringBuilder();
+        sb.append(fill).append('|').append(stroke).append('|');
+        if (fill) {
+            appendColor(sb, state.getNonStrokingColor());
+        }
+        if (stroke) {
+            // 只填充的路径不使用线宽，线宽不同也可以合并
+            sb.append(getStrokeWidth()).append('|');
+            appendColor(sb, state.getStrokingColor());
+            sb.append(Arrays.toString(getLineStyle()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 输出尚未输出的路径
+     */
+    private void flushPath() throws IOException {
+        DrawStyle style = pendingStyle;
+        if (style == null) {
+            return;
+        }
+        pendingStyle = null;
+        pendingSignature = null;
+        // 外接矩形取路径的实际范围，路径数据相对外接矩形左上角，坐标更短，阅读器也可以按范围跳过绘制
+        float height = page.getCropBox().getHeight() * scale;
+        double x = FixedFormat.floor(pendingExtent.getMinX() * scale, precision);
+        double y = FixedFormat.floor(height - pendingExtent.getMaxY() * scale, precision);
+        double w = FixedFormat.ceil(pendingExtent.getMaxX() * scale, precision) - x;
+        double h = FixedFormat.ceil(height - pendingExtent.getMinY() * scale, precision) - y;
+        pathEncoder.reset();
+        for (GeneralPath shape : pendingShapes) {
+            drawLine(shape.getPathIterator(null), pathEncoder, x, height - y);
+        }
+        pendingShapes.clear();
+        pendingBounds.clear();
+        PageContentWriter writer = writerOf(pendingTemplate);
+        if (writer != null) {
+            writer.addPath(pendingId, x, y, round(w), round(h), style, pathEncoder);
+        }
+    }
+
+    /**
+     * 获取路径的绘制属性，外接矩形及路径数据在输出时添加
+     */
+    private DrawStyle getPathStyle(boolean fill, boolean stroke) throws IOException {
+        DrawStyle style = new DrawStyle();
+        PDColor strokeColor = stroke ? getGraphicsState().getStrokingColor() : null;
+        PDColor fillColor = fill ? getGraphicsState().getNonStrokingColor() : null;
+        String[] lineStyle = strokeColor != null ? getLineStyle() : null;
+        // 只填充的路径不输出线宽，线宽不同的填充路径共用绘制参数
+        Double lineWidth = strokeColor != null ? getStrokeWidth() : null;
+        if (ofdCreator.isDrawParams()) {
+            style.setDrawParam(getDrawParam(fillColor, strokeColor, lineWidth, lineStyle));
         } else {
-            CT_Color strokeColor = getStrokeColor();
-            if (strokeColor != null) {
-                path.setStroke(true);
-                path.setFill(false);
-                path.setStrokeColor(strokeColor);
-            } else {
-                path.setStroke(false);
+            style.setLineWidth(lineWidth)
+                    .setStrokeColor(strokeColor != null ? getColor(strokeColor) : null)
+                    .setFillColor(fillColor != null ? getColor(fillColor) : null)
+                    .setLineStyle(lineStyle);
+        }
+        return style.setStroke(strokeColor != null).setFill(fillColor != null);
+    }
+
+    /**
+     * 描边线宽（毫米）
+     * <p>
+     * 线宽在用户空间中，随变换矩阵缩放。Form按原方式绘制与作为复合图元引用时结果一致：
+     * 复合图元内按Form自身的矩阵缩放，使用处的缩放由CompositeObject的变换矩阵完成。
+     */
+    private double getStrokeWidth() {
+        return round(getGraphicsState().getLineWidth() * getLineScale() * scale);
+    }
+
+    /**
+     * 用户空间长度换算到设备空间的比例
+     * <p>
+     * 取变换矩阵行列式绝对值的平方根，即面积缩放比例的平方根；
+     * 两个方向缩放不同时OFD的线宽只能取一个值，与按平均缩放绘制的结果接近。
+     */
+    private double getLineScale() {
+        Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+        return Math.sqrt(Math.abs(ctm.getScaleX() * ctm.getScaleY() - ctm.getShearX() * ctm.getShearY()));
+    }
+
+    /**
+     * 线型，依次对应{@link DrawStyle#LINE_STYLE_ATTRIBUTES}，为OFD默认值时为null
+     */
+    private String[] getLineStyle() {
+        PDGraphicsState state = getGraphicsState();
+        String[] ret = new String[DrawStyle.LINE_STYLE_ATTRIBUTES.length];
+        switch (state.getLineCap()) {
+            case 1:
+                ret[0] = "Round";
+                break;
+            case 2:
+                ret[0] = "Square";
+                break;
+            default:
+                break;
+        }
+        switch (state.getLineJoin()) {
+            case 1:
+                ret[1] = "Round";
+                break;
+            case 2:
+                ret[1] = "Bevel";
+                break;
+            default:
+                // 斜接长度限制是与线宽的比值，不需要缩放
+                String miterLimit = fmt(state.getMiterLimit());
+                if (!DEFAULT_MITER_LIMIT.equals(miterLimit)) {
+                    ret[2] = miterLimit;
+                }
+                break;
+        }
+        PDLineDashPattern dash = state.getLineDashPattern();
+        float[] dashArray = dash == null ? null : dash.getDashArray();
+        if (dashArray != null && dashArray.length > 0) {
+            // 虚线长度与线宽一样在用户空间中，随变换矩阵缩放
+            double dashScale = getLineScale() * scale;
+            StringBuilder sb = new StringBuilder();
+            for (float v : dashArray) {
+                sb.append(fmt(v * dashScale)).append(' ');
+            }
+            sb.setLength(sb.length() - 1);
+            if (dash.getPhase() != 0) {
+                ret[3] = fmt(dash.getPhase() * dashScale);
+            }
+            ret[4] = sb.toString();
+        }
+        return ret;
+    }
+
+    private static void addLineStyle(Element element, String[] lineStyle) {
+        if (lineStyle == null) {
+            return;
+        }
+        for (int i = 0; i < lineStyle.length; i++) {
+            if (lineStyle[i] != null) {
+                element.addAttribute(DrawStyle.LINE_STYLE_ATTRIBUTES[i], lineStyle[i]);
             }
         }
-        path.setAbbreviatedData(data);
-        return path;
     }
 
     /**
-     * 获取非stroke颜色
+     * 获取绘制参数，内容相同的绘制参数只添加一次
+     *
+     * @param fillColor   填充颜色，为null时不设置
+     * @param strokeColor 描边颜色，为null时不设置
+     * @param lineWidth   线宽，为null时不设置
+     * @param lineStyle   线型，为null时不设置
+     * @return 绘制参数ID
      */
-    private CT_Color getNonStrokeColor() throws IOException {
-        PDColor color = getGraphicsState().getNonStrokingColor();
-        if (color == null) {
-            return null;
+    private String getDrawParam(PDColor fillColor, PDColor strokeColor, Double lineWidth,
+                                  String[] lineStyle) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        appendColorValue(sb, fillColor);
+        appendColorValue(sb, strokeColor);
+        sb.append(lineWidth).append('|').append(Arrays.toString(lineStyle));
+        String key = sb.toString();
+        String paramId = ofdCreator.getDrawParam(key);
+        if (paramId == null) {
+            OFDElement param = OFDElement.getInstance("DrawParam");
+            if (lineWidth != null) {
+                param.addAttribute("LineWidth", fmt(lineWidth));
+            }
+            addLineStyle(param, lineStyle);
+            if (fillColor != null) {
+                param.add(ElementContentWriter.toElement(getColor(fillColor), "FillColor"));
+            }
+            if (strokeColor != null) {
+                param.add(ElementContentWriter.toElement(getColor(strokeColor), "StrokeColor"));
+            }
+            paramId = ofdCreator.putDrawParam(key, param);
         }
-        return getColor(color);
+        return paramId;
     }
 
     /**
-     * 获取stroke颜色
+     * 按转换后的颜色值拼接，转换结果相同的颜色共用绘制参数
      */
-    private CT_Color getStrokeColor() throws IOException {
-        PDColor color = getGraphicsState().getStrokingColor();
-        if (color == null) {
-            return null;
+    private void appendColorValue(StringBuilder sb, PDColor color) throws IOException {
+        if (color != null) {
+            PDColorSpace colorSpace = color.getColorSpace();
+            if (ofdCreator.isNativeColorSpaces()
+                    && (colorSpace instanceof PDDeviceGray || colorSpace instanceof PDDeviceCMYK)) {
+                sb.append(colorSpace.getName()).append(Arrays.toString(color.getComponents()));
+            } else {
+                sb.append(ofdCreator.getColorCache().toRGB(color));
+            }
         }
-        return getColor(color);
+        sb.append('|');
     }
 
     /**
      * 画线
+     *
+     * @param left 外接矩形左边在页面中的位置
+     * @param top  外接矩形上边到页面底边的距离
      */
-    private void drawLine(PathIterator iterator, AbbreviatedData data, float height) throws IOException {
-        double[] coords = new double[6];
+    private void drawLine(PathIterator iterator, PathEncoder encoder, double left, double top) {
+        PathSimplifier simplifier = pathSimplifier.reset(encoder);
         while (!iterator.isDone()) {
             switch (iterator.currentSegment(coords)) {
                 case PathIterator.SEG_MOVETO:
-                    data.moveTo(coords[0] * scale, height - coords[1] * scale);
+                    simplifier.moveTo(coords[0] * scale - left, top - coords[1] * scale);
                     break;
                 case PathIterator.SEG_LINETO:
-                    data.lineTo(coords[0] * scale, height - coords[1] * scale);
+                    simplifier.lineTo(coords[0] * scale - left, top - coords[1] * scale);
                     break;
                 case PathIterator.SEG_CUBICTO:
-                    data.B(coords[0] * scale, height - coords[1] * scale,
-                            coords[2] * scale, height - coords[3] * scale,
-                            coords[4] * scale, height - coords[5] * scale);
+                    simplifier.cubicTo(coords[0] * scale - left, top - coords[1] * scale,
+                            coords[2] * scale - left, top - coords[3] * scale,
+                            coords[4] * scale - left, top - coords[5] * scale);
                     break;
                 case PathIterator.SEG_CLOSE:
-                    data.close();
-                    closePath();
+                    simplifier.close();
                     break;
                 default:
                     break;
             }
             iterator.next();
         }
+        simplifier.finish();
     }
 
     @Override
     public void fillAndStrokePath(int windingRule) throws IOException {
-        GeneralPath path = (GeneralPath) this.linePath.clone();
-        this.fillPath(windingRule);
-        this.linePath = path;
-        this.strokePath();
+        // 填充并描边输出为一个路径对象
+        drawPath(true, true);
+        linePath.reset();
     }
 
     @Override
@@ -337,8 +1103,7 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
 
     }
 
-    private TextObject $textObj = null;
-    private TextCode $textCode = null;
+    private TextItem $textObj = null;
     private Double $deltaX = 0d;
     private List<String> $deltaXList = null;
     private Double $deltaY = 0d;
@@ -347,21 +1112,25 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
     // 字符索引
     private int $stringIndex = 0;
     private List<String> $glyphs = null;
+    private String $fontId = null;
     private CmapLookup $cmap = null;
     private byte[] textByte;
     // 字体转换索引
     private List<String> $cgTransforms = null;
+    private Double $firstX = 0d;
+    private double $fontSize;
+    private boolean $rotated;
+    private Double $hScale = null;
     /**
-     * 元素队列
+     * 尚未输出的文字，与后续文字合并
      */
-    private List<Element> queue = new ArrayList<Element>();
+    private TextRun textRun = null;
 
     @Override
     protected void showText(byte[] string) throws IOException {
         // 初始化
         $stringIndex = 0;
         $textObj = null;
-        $textCode = null;
         $deltaX = 0d;
         $deltaY = 0d;
         $text = new StringBuffer();
@@ -370,6 +1139,8 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
         $deltaYList = new ArrayList<String>();
         $cgTransforms = new ArrayList<String>();
         $cmap = null;
+        $fontId = null;
+        $hScale = null;
         textByte = string;
         // 处理文字
         super.showText(string);
@@ -379,37 +1150,96 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
         if (null == text || "".equals(text)) {
             return;
         }
-        if ($glyphs != null && $glyphs.size() > 0) {
-            // 添加字符变换
-            addCGTransform(text);
+        // 记录使用到的字形，打包时生成字体子集
+        ofdCreator.addGlyphs($fontId, $glyphs);
+
+        // 扩展
+        drawTextParam();
+        TextRun run = new TextRun($textObj, text, $glyphs, $deltaXList, $deltaYList,
+                $firstX, $deltaX, inTemplate, getRunSignature(text));
+        // 同一基线上字体、颜色等相同的相邻文字合并为一个文字对象
+        if (textRun != null && textRun.signature != null && textRun.signature.equals(run.signature)
+                && run.firstX >= textRun.lastX) {
+            textRun.append(run, fmtDelta(run.firstX, textRun.lastX));
+        } else {
+            // 之前的路径先输出，文字与其他对象按绘制顺序写出
+            flushPath();
+            flushTextRun();
+            textRun = run;
+        }
+    }
+
+    /**
+     * 合并文字的判断依据，不能合并时返回null
+     * <p>
+     * 只合并未旋转、没有纵向偏移且每个字形对应一个字符的文字，
+     * 字体、字号、颜色、绘制模式、线宽、变换矩阵及基线相同时可以合并。
+     */
+    private String getRunSignature(String text) {
+        if ($rotated || !$deltaYList.isEmpty() || text.length() != $stringIndex
+                || $deltaXList.size() != $stringIndex - 1) {
+            return null;
+        }
+        PDGraphicsState state = getGraphicsState();
+        Matrix ctm = state.getCurrentTransformationMatrix();
+        RenderingMode renderingMode = state.getTextState().getRenderingMode();
+        StringBuilder sb = new StringBuilder();
+        sb.append($fontId).append('|').append($fontSize).append('|')
+                .append($textObj.getY()).append('|')
+                .append($textObj.getHeight()).append('|')
+                .append(renderingMode).append('|')
+                .append(renderingMode.isStroke() ? getTextLineWidth() : 0).append('|')
+                .append(ctm.getShearX()).append(',').append(ctm.getShearY()).append('|')
+                .append($hScale).append('|')
+                .append($glyphs.isEmpty()).append('|')
+                .append(inTemplate).append('|');
+        appendColor(sb, state.getNonStrokingColor());
+        appendColor(sb, state.getStrokingColor());
+        return sb.toString();
+    }
+
+    private static void appendColor(StringBuilder sb, PDColor color) {
+        if (color != null) {
+            sb.append(color.getColorSpace() == null ? 0 : System.identityHashCode(color.getColorSpace().getCOSObject()))
+                    .append(Arrays.toString(color.getComponents()));
         }
+        sb.append('|');
+    }
 
-        if ($deltaXList != null && $deltaXList.size() > 0) {
+    /**
+     * 输出尚未输出的文字
+     */
+    private void flushTextRun() throws IOException {
+        TextRun run = textRun;
+        if (run == null) {
+            return;
+        }
+        textRun = null;
+        TextItem textObj = run.textObj;
+        if (run.deltaXList.size() > 0) {
             // 宽度根据所有字体累加
-            Double deltaWidth = $textObj.getBoundary().getWidth();
-            for (String w : $deltaXList) {
-                deltaWidth += Double.valueOf(w);
+            double deltaWidth = textObj.getWidth();
+            for (String w : run.deltaXList) {
+                deltaWidth += Double.parseDouble(w);
             }
-            $textObj.setBoundary($textObj.getBoundary().setWidth(deltaWidth));
-
-            $textCode.setDeltaX(new ST_Array($deltaXList.toArray(new String[$deltaXList.size()])));
+            textObj.setWidth(round(deltaWidth)).setDeltaX(run.deltaXList);
         }
 
-        if ($deltaYList != null && $deltaYList.size() > 0) {
+        if (run.deltaYList.size() > 0) {
             // 高度根据所有字体累加
-            Double deltaHeight = $textObj.getBoundary().getHeight();
-            for (String h : $deltaYList) {
-                deltaHeight += Double.valueOf(h);
+            double deltaHeight = textObj.getHeight();
+            for (String h : run.deltaYList) {
+                deltaHeight += Double.parseDouble(h);
             }
-            $textObj.setBoundary($textObj.getBoundary().setHeight(deltaHeight));
-            $textCode.setDeltaY(new ST_Array($deltaYList.toArray(new String[$deltaYList.size()])));
+            textObj.setHeight(round(deltaHeight)).setDeltaY(run.deltaYList);
         }
 
-        // 扩展
-        drawTextParam();
-        $textCode.setContent(text);
-        $textObj.addTextCode($textCode);
-        queue.add($textObj);
+        // 添加字符变换
+        textObj.setContent(run.text.toString()).setGlyphs(run.glyphs);
+        PageContentWriter writer = writerOf(run.template);
+        if (writer != null) {
+            writer.addText(textObj);
+        }
     }
 
     /**
@@ -418,9 +1248,14 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
     @Override
     protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code,
                              Vector displacement) throws IOException {
-        String unicode = font.toUnicode(code);
+        FontCache.FontInfo fontInfo = fontCache.get(font);
+        // 不可见的字形不输出，整段文字不可见时不提取字体
+        if (!fontInfo.isVertical() && !isVisible(getGlyphBounds(textRenderingMatrix, fontInfo, displacement))) {
+            return;
+        }
+        String unicode = fontInfo.toUnicode(code);
         boolean isUnicode = false;
-        if (null == unicode || "".equals(unicode)) {
+        if ("".equals(unicode)) {
             unicode = "¤";// 占位符
             isUnicode = true;
         }
@@ -435,42 +1270,11 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
         Matrix textMatrix = getTextMatrix();
 
         double angle = getRotate(textRenderingMatrix);
-        BoundingBox bbox = font.getBoundingBox();
-        if (bbox.getLowerLeftY() < Short.MIN_VALUE) {
-            // PDFBOX-2158 and PDFBOX-3130
-            // files by Salmat eSolutions / ClibPDF Library
-            bbox.setLowerLeftY(-(bbox.getLowerLeftY() + 65536));
-        }
-        // 1/2 the bbox is used as the height todo: why?
-        float glyphHeight = bbox.getHeight() / 2;
-
-        // sometimes the bbox has very high values, but CapHeight is OK
-        PDFontDescriptor fontDescriptor = font.getFontDescriptor();
-        if (fontDescriptor != null) {
-            float capHeight = fontDescriptor.getCapHeight();
-            if (Float.compare(capHeight, 0) != 0 && (capHeight < glyphHeight
-                    || Float.compare(glyphHeight, 0) == 0)) {
-                glyphHeight = capHeight;
-            }
-            // PDFBOX-3464, PDFBOX-4480, PDFBOX-4553:
-            // sometimes even CapHeight has very high value, but Ascent and
-            // Descent are ok
-            float ascent = fontDescriptor.getAscent();
-            float descent = fontDescriptor.getDescent();
-            if (capHeight > ascent && ascent > 0 && descent < 0
-                    && ((ascent - descent) / 2 < glyphHeight
-                    || Float.compare(glyphHeight, 0) == 0)) {
-                glyphHeight = (ascent - descent) / 2;
-            }
-        }
-
-        // transformPoint from glyph space -> text space
-        float height;
-        if (font instanceof PDType3Font) {
-            height = font.getFontMatrix().transformPoint(0, glyphHeight).y;
-        } else {
-            height = glyphHeight / 1000;
+        if ($stringIndex == 0) {
+            $rotated = angle != 0;
         }
+        // 字形高度、空格宽度等按字体缓存
+        float height = fontInfo.getHeight();
 
         float displacementX = displacement.getX();
         // the sorting algorithm is based on the width of the character. As the
@@ -478,17 +1282,9 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
         // for vertical characters doesn't provide any suitable value for it, we
         // have to
         // calculate our own
-        TrueTypeFont ttf = null;
-        if (font instanceof PDTrueTypeFont) {
-            ttf = ((PDTrueTypeFont) font).getTrueTypeFont();
-        } else if (font instanceof PDType0Font) {
-            PDCIDFont cidFont = ((PDType0Font) font).getDescendantFont();
-            if (cidFont instanceof PDCIDFontType2) {
-                ttf = ((PDCIDFontType2) cidFont).getTrueTypeFont();
-            }
-        }
+        TrueTypeFont ttf = fontInfo.getTrueTypeFont();
 
-        if (font.isVertical()) {
+        if (fontInfo.isVertical()) {
             displacementX = font.getWidth(code) / 1000;
             // there may be an additional scaling factor for true type fonts
             if (ttf != null && ttf.getUnitsPerEm() != 1000) {
@@ -525,27 +1321,7 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
         float dxDisplay = nextX - textRenderingMatrix.getTranslateX();
         float dyDisplay = height * textRenderingMatrix.getScalingFactorY();
 
-        float glyphSpaceToTextSpaceFactor = 1 / 1000f;
-        if (font instanceof PDType3Font) {
-            glyphSpaceToTextSpaceFactor = font.getFontMatrix().getScaleX();
-        }
-
-        float spaceWidthText = 0;
-        try {
-            spaceWidthText = font.getSpaceWidth() * glyphSpaceToTextSpaceFactor;
-        } catch (Throwable exception) {
-            logger.error(exception.getMessage(), exception);
-        }
-
-        if (spaceWidthText == 0) {
-            spaceWidthText = font.getAverageFontWidth()
-                    * glyphSpaceToTextSpaceFactor;
-            spaceWidthText *= .80f;
-        }
-        if (spaceWidthText == 0) {
-            spaceWidthText = 1.0f; // if could not find font, use a generic
-            // value
-        }
+        float spaceWidthText = fontInfo.getSpaceWidthText();
 
         // the space width has to be transformed into display units
         float spaceWidthDisplay = spaceWidthText
@@ -564,73 +1340,59 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
                 nextX, nextY, Math.abs(dyDisplay), dxDisplay,
                 Math.abs(spaceWidthDisplay), unicode, new int[]{code}, font,
                 fontSize, (int) (fontSize * textMatrix.getScalingFactorX()));
-        String fontName = "";
-        if (font.getFontDescriptor() != null) {
-            fontName = font.getFontDescriptor().getFontFamily();
-            if (null == fontName || "".equals(fontName)) {
-                fontName = font.getName();
-            }
-        }
-        boolean willBeSubset = font.isEmbedded() || font.willBeSubset();
+        String fontName = fontInfo.getFontName();
+        boolean willBeSubset = fontInfo.isWillBeSubset();
         String text = unicode;
         $text.append(text);
-        int fontInt = 1;
         if ($stringIndex == 0) {
             long textID = ofdCreator.getNextRid();
-            $textObj = new TextObject(textID);
+            $textObj = new TextItem(textID);
 
-            String fontHash = "" + font.hashCode();
-            String fontId = ofdCreator.getFontMap().get(fontHash);
+            // 先按字体文件对象号查找，未命中时读取字体文件按内容摘要去重
+            String fontId = fontInfo.getFontId();
             if (fontId == null) {
-                byte[] fontBytes = writeFont(font);
-                fontId = ofdCreator.putFont(fontHash, fontName, fontName, fontBytes, ".otf");
+                String fontKey = fontKey(font);
+                fontId = ofdCreator.getFontMap().get(fontKey);
+                if (fontId == null) {
+                    byte[] fontBytes = writeFont(font);
+                    String fontHash = fontBytes == null ? fontKey : DigestUtil.md5Hex(fontBytes);
+                    fontId = ofdCreator.putFont(fontHash, fontName, fontName, fontBytes, ".otf");
+                    ofdCreator.getFontMap().put(fontKey, fontId);
+                }
+                fontInfo.setFontId(fontId);
             }
-            fontInt = Integer.valueOf(fontId);
+            $fontId = fontId;
 
-            $textCode = new TextCode();
             AffineTransform transform = new AffineTransform();
             transform.rotate(Math.toRadians(angle), textPosition.getWidth(),
                     textPosition.getHeight());
 
             if (angle == 0)
 			{
-				$textCode.setX(0d);
-				$textCode.setY((double)fontSize);
+				$textObj.setCodePosition(0, round(fontSize));
 				$textObj.setBoundary(
-								textPosition.getX() / PX2MM,
-						Math.abs(
+								round(textPosition.getX() / PX2MM),
+						round(Math.abs(
 								textPosition.getY() / PX2MM
-										- fontSize),
-						textRenderingMatrix.getScaleX()
-								/ PX2MM,
-						dyDisplay).setFont(fontInt)
-						.setSize((double)fontSize);
+										- fontSize)),
+						round(textRenderingMatrix.getScaleX()
+								/ PX2MM),
+						round(dyDisplay)).setFont(fontId)
+						.setSize(fontSize);
+				$fontSize = fontSize;
 			}
 			else
 			{
-				$textCode.setX(0d);
-				$textCode.setY(0d);
-				$textObj.setBoundary(0, 0, textPosition.getX(),
-						textPosition.getY()).setFont(fontInt).setSize(fontSize / (double)PX2MM);
+				$textObj.setCodePosition(0, 0);
+				$textObj.setBoundary(0, 0, round(textPosition.getX()),
+						round(textPosition.getY())).setFont(fontId).setSize(fontSize / (double)PX2MM);
 			}
 
         }
 
-        Integer glyphId = code;
-        if (font instanceof PDTrueTypeFont) {
-            PDTrueTypeFont ttfFont = (PDTrueTypeFont) font;
-            glyphId = ttfFont.codeToGID(code);
-        } else if (font instanceof PDType1CFont) {
-            PDType1CFont type1CFont = (PDType1CFont) font;
-            String name = type1CFont.codeToName(code);
-            glyphId = type1CFont.getCFFType1Font().nameToGID(name);
-        }
+        int glyphId = fontInfo.codeToGID(code);
         if ($stringIndex == 0 && ttf != null && willBeSubset) {
-            try {
-                $cmap = ttf.getUnicodeCmapLookup();
-            } catch (Exception e) {
-                //logger.warn("加载字体异常",e);
-            }
+            $cmap = fontInfo.getUnicodeCmap();
             /**
              * 存在cmap,从cmap中获取glyphId,否则code即为glyphId<br>
              * 详见PDFDebugger查看pdf内部结构方法源码 <br>
@@ -650,52 +1412,95 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
         }
 
         Double topLeftX = textPosition.getX() / (double) PX2MM;
+        if ($stringIndex == 0) {
+            $firstX = topLeftX;
+        }
         if ($stringIndex > 0 && $deltaX.compareTo(topLeftX) != 0) {
-            Double w = topLeftX - $deltaX;
-            $deltaXList.add("" + w);
+            $deltaXList.add(fmtDelta(topLeftX, $deltaX));
         }
         $deltaX = topLeftX;
 
         Double topLeftY = textPosition.getY() / (double) PX2MM;
 
         if ($stringIndex > 0 && $deltaY.compareTo(topLeftY) != 0) {
-            Double h = topLeftY - $deltaY;
-            $deltaYList.add("" + h);
+            $deltaYList.add(fmtDelta(topLeftY, $deltaY));
         }
         $deltaY = topLeftY;
 
         Float scaleX = 1f;
         Float scaleY = 1f;
-        Float lineWidth = state.getLineWidth();
-        // 粗体
-        if (renderingMode.isStroke() && lineWidth != null) {
-            // minimum line width as used by Adobe Reader
-            if (lineWidth < 0.25) {
-                lineWidth = 0.25f;
-            }
-            $textObj.setLineWidth(
-                    lineWidth.doubleValue() / PX2MM);
+        // 粗体，使用绘制参数时线宽写入绘制参数
+        if (renderingMode.isStroke() && !ofdCreator.isDrawParams()) {
+            $textObj.getStyle().setLineWidth(getTextLineWidth());
         }
 
         if (angle == 0d) {
-            $textObj.setCTM(
-                    new ST_Array(scaleX, ctm.getShearX() / PX2MM,
-                            ctm.getShearY() / PX2MM, scaleY, 0, 0));
+            $textObj.setCtm(fmtMatrix(scaleX) + " " + fmtMatrix(ctm.getShearX() / PX2MM) + " "
+                    + fmtMatrix(ctm.getShearY() / PX2MM) + " " + fmtMatrix(scaleY) + " 0 0");
         } else {
-            $textObj.setCTM(new ST_Array(
-                    nextTextRenderingMatrix.getScaleX(),
-                    nextTextRenderingMatrix.getShearX(),
-                    nextTextRenderingMatrix.getShearY(),
-                    nextTextRenderingMatrix.getScaleY(),
-                    textPosition.getX() / PX2MM,
-                    textPosition.getY() / PX2MM));
+            $textObj.setCtm(fmtMatrix(nextTextRenderingMatrix.getScaleX()) + " "
+                    + fmtMatrix(nextTextRenderingMatrix.getShearX()) + " "
+                    + fmtMatrix(nextTextRenderingMatrix.getShearY()) + " "
+                    + fmtMatrix(nextTextRenderingMatrix.getScaleY()) + " "
+                    + fmt(textPosition.getX() / PX2MM) + " "
+                    + fmt(textPosition.getY() / PX2MM));
         }
         if (nextTextRenderingMatrix.getScaleX() != nextTextRenderingMatrix.getScaleY()) {
-            $textObj.setHScale((double) nextTextRenderingMatrix.getScaleX());
+            $hScale = (double) nextTextRenderingMatrix.getScaleX();
+            $textObj.setHScale($hScale);
         }
         $stringIndex++;
     }
 
+    /**
+     * 字形范围（设备空间）
+     */
+    private static Rectangle2D getGlyphBounds(Matrix textRenderingMatrix, FontCache.FontInfo fontInfo,
+                                              Vector displacement) {
+        Rectangle2D glyphBounds = fontInfo.getGlyphBounds();
+        double maxX = Math.max(glyphBounds.getMaxX(), displacement.getX());
+        Rectangle2D bounds = new Rectangle2D.Double(glyphBounds.getX(), glyphBounds.getY(),
+                maxX - glyphBounds.getX(), glyphBounds.getHeight());
+        return textRenderingMatrix.createAffineTransform().createTransformedShape(bounds).getBounds2D();
+    }
+
+    /**
+     * 字体去重键
+     * <p>
+     * PDFBox可能为同一字体创建多个PDFont对象，使用字体文件流的对象号作为键，
+     * 对象号在各线程加载的文档中保持一致；没有嵌入字体文件时使用字体名称及编码。
+     */
+    private String fontKey(PDFont font) {
+        PDFontDescriptor descriptor = font.getFontDescriptor();
+        if (descriptor != null) {
+            COSDictionary dict = descriptor.getCOSObject();
+            // 与writeFont的优先级一致
+            for (COSName name : FONT_FILES) {
+                COSBase item = dict.getItem(name);
+                if (item instanceof COSObject) {
+                    COSObject obj = (COSObject) item;
+                    return "obj_" + obj.getObjectNumber() + "_" + obj.getGenerationNumber();
+                }
+            }
+        }
+        return "name_" + font.getName() + "_" + encodingKey(font);
+    }
+
+    /**
+     * 字体字典中的编码，间接对象使用对象号，编码名称及直接定义的编码使用其内容
+     */
+    private static String encodingKey(PDFont font) {
+        COSBase encoding = font.getCOSObject().getItem(COSName.ENCODING);
+        if (encoding instanceof COSObject) {
+            COSObject obj = (COSObject) encoding;
+            return "obj_" + obj.getObjectNumber() + "_" + obj.getGenerationNumber();
+        }
+        if (encoding instanceof COSName) {
+            return ((COSName) encoding).getName();
+        }
+        return String.valueOf(encoding);
+    }
+
     private byte[] writeFont(PDFont font) {
         byte[] fontBytes = null;
         InputStream is = null;
@@ -814,16 +1619,38 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
         PDGraphicsState state = getGraphicsState();
         RenderingMode renderingMode = state.getTextState().getRenderingMode();
 
-        setColor($textObj, state.getNonStrokingColor(), true);
+        DrawStyle style = $textObj.getStyle();
+        if (ofdCreator.isDrawParams()) {
+            style.setDrawParam(getDrawParam(state.getNonStrokingColor(), state.getStrokingColor(),
+                    renderingMode.isStroke() ? getTextLineWidth() : null, null));
+        } else {
+            if (state.getNonStrokingColor() != null) {
+                style.setFillColor(getColor(state.getNonStrokingColor()));
+            }
+            if (state.getStrokingColor() != null) {
+                style.setStrokeColor(getColor(state.getStrokingColor()));
+            }
+        }
         if (renderingMode.isFill()) {
-            $textObj.setFill(true);
+            style.setFill(true);
         }
-        setColor($textObj, state.getStrokingColor(), false);
         if (renderingMode.isStroke()) {
-            $textObj.setStroke(true);
+            style.setStroke(true);
         }
     }
 
+    /**
+     * 描边文字的线宽，与路径一样随变换矩阵缩放
+     */
+    private double getTextLineWidth() {
+        float lineWidth = getGraphicsState().getLineWidth();
+        // minimum line width as used by Adobe Reader
+        if (lineWidth < 0.25) {
+            lineWidth = 0.25f;
+        }
+        return round(lineWidth * getLineScale() / PX2MM);
+    }
+
     /**
      * 计算旋转角度<br/>
      * <p>
@@ -842,68 +1669,85 @@ public class OFDPageDrawer extends PDFGraphicsStreamEngine {
         return angle;
     }
 
-    private void setColor(Object object, PDColor color,
-                          boolean noStroke) throws IOException {
-        if (color == null) {
-            return;
-        }
-        CT_Color ctColor = getColor(color);
-        if (noStroke) {
-            ctColor.setOFDName("FillColor");
-            if (object instanceof TextObject) {
-                TextObject o = (TextObject) object;
-                o.setFillColor(ctColor);
-            } else if (object instanceof PathObject) {
-                PathObject o = (PathObject) object;
-                o.setFillColor(ctColor);
-            } else if (object instanceof CT_Path) {
-                CT_Path o = (CT_Path) object;
-                o.setFillColor(ctColor);
+    private DrawStyle.Color getColor(PDColor color) throws IOException {
+        if (ofdCreator.isNativeColorSpaces()) {
+            PDColorSpace colorSpace = color.getColorSpace();
+            if (colorSpace instanceof PDDeviceGray) {
+                return nativeColor(OfdResIdDefine.RID_ColorSpace_Gray, color.getComponents());
             }
-        } else {
-            ctColor.setOFDName("StrokeColor");
-            if (object instanceof TextObject) {
-                TextObject o = (TextObject) object;
-                o.setStrokeColor(ctColor);
-            } else if (object instanceof PathObject) {
-                PathObject o = (PathObject) object;
-                o.setStrokeColor(ctColor);
-            } else if (object instanceof CT_Path) {
-                CT_Path o = (CT_Path) object;
-                o.setStrokeColor(ctColor);
+            if (colorSpace instanceof PDDeviceCMYK) {
+                return nativeColor(OfdResIdDefine.RID_ColorSpace_CMYK, color.getComponents());
             }
         }
+        int rgb = ofdCreator.getColorCache().toRGB(color);
+        return new DrawStyle.Color((rgb >> 16 & 0xFF) + " " + (rgb >> 8 & 0xFF) + " " + (rgb & 0xFF), null);
     }
 
-    private CT_Color getColor(PDColor color) throws IOException {
-        CT_Color ctColor = new CT_Color();
-        if (color != null) {
-            PDColorSpace colorSpace = color.getColorSpace();
-            float[] rgb = colorSpace.toRGB(color.getComponents());
-            ctColor = CT_Color.rgb(toRgbNumber(rgb[0]), toRgbNumber(rgb[1]), toRgbNumber(rgb[2]));
+    /**
+     * 使用指定颜色空间及原始分量的颜色
+     */
+    private DrawStyle.Color nativeColor(long colorSpaceId, float[] components) {
+        StringBuilder sb = new StringBuilder();
+        for (float component : components) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(Math.round((component < 0 ? 0 : component > 1 ? 1 : component) * 255));
         }
-        return ctColor;
+        return new DrawStyle.Color(sb.toString(), String.valueOf(colorSpaceId));
     }
 
     /**
-	 * 添加字符变换
-	 * 
-	 * @param text
-	 */
-	private void addCGTransform(String text) {
-		int total = text.length();
-        CT_CGTransform cgTransform = new CT_CGTransform();
-        cgTransform.setCodePosition(0);
-        cgTransform.setGlyphCount(total);
-        cgTransform.setCodeCount(total);
-        cgTransform.setGlyphs(new ST_Array($glyphs.toArray(new String[$glyphs.size()])));
-        $textObj.addCGTransform(cgTransform);
-	}
+     * 图片的裁剪路径，坐标为图片单位坐标
+     */
+    private static class ImageClip {
+        final String boundary;
+        final PathEncoder data;
+
+        ImageClip(String boundary, PathEncoder data) {
+            this.boundary = boundary;
+            this.data = data;
+        }
+    }
 
     /**
-     * 转换为rgb
+     * 待输出的文字，相邻的文字合并后一起输出
      */
-    private int toRgbNumber(float color) {
-        return color < 0 ? 0 : (int) ((color > 1 ? 1 : color) * 255);
+    private static class TextRun {
+        final TextItem textObj;
+        final StringBuilder text;
+        final List<String> glyphs;
+        final List<String> deltaXList;
+        final List<String> deltaYList;
+        final double firstX;
+        double lastX;
+        final boolean template;
+        final String signature;
+
+        TextRun(TextItem textObj, String text, List<String> glyphs,
+                List<String> deltaXList, List<String> deltaYList, double firstX, double lastX,
+                boolean template, String signature) {
+            this.textObj = textObj;
+            this.text = new StringBuilder(text);
+            this.glyphs = glyphs;
+            this.deltaXList = deltaXList;
+            this.deltaYList = deltaYList;
+            this.firstX = firstX;
+            this.lastX = lastX;
+            this.template = template;
+            this.signature = signature;
+        }
+
+        /**
+         * 合并后续文字，两段文字之间的距离作为字符间距
+         */
+        void append(TextRun next, String gap) {
+            deltaXList.add(gap);
+            deltaXList.addAll(next.deltaXList);
+            text.append(next.text);
+            glyphs.addAll(next.glyphs);
+            lastX = next.lastX;
+        }
     }
+
 }
@@ -1,16 +1,24 @@
 package org.ofd.render;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.ofd.render.config.ConvertOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OFDRender {
     private static final Logger logger = LoggerFactory.getLogger(OFDRender.class);
@@ -21,67 +29,239 @@ public class OFDRender {
     private static final float POINTS_PER_MM = 1 / (10 * 2.54f) * 72;
 
     public static void convertPdfToOfd(InputStream input, OutputStream output) throws IOException {
+        convertPdfToOfd(input, output, new ConvertOptions());
+    }
+
+    /**
+     * 多线程转换PDF为OFD
+     *
+     * @param input       PDF输入流
+     * @param output      OFD输出流
+     * @param parallelism 页面转换线程数，小于等于1时按顺序转换，压缩线程数相同
+     * @throws IOException IO异常
+     */
+    public static void convertPdfToOfd(InputStream input, OutputStream output, int parallelism) throws IOException {
+        convertPdfToOfd(input, output, new ConvertOptions().setParallelism(parallelism));
+    }
+
+    /**
+     * 转换PDF为OFD
+     *
+     * @param input   PDF输入流
+     * @param output  OFD输出流
+     * @param options 转换参数
+     * @throws IOException IO异常
+     */
+    public static void convertPdfToOfd(InputStream input, OutputStream output, ConvertOptions options) throws IOException {
         long start;
         long end;
         start = System.currentTimeMillis();
-        try (PDDocument doc = PDDocument.load(input)) {
-            OFDCreator ofdCreator = new OFDCreator();
-            for (int i = 0; i < doc.getNumberOfPages(); i++) {
-                ofdCreator.addPage(i);
-                PDRectangle cropBox = doc.getPage(i).getCropBox();
-                float widthPt = cropBox.getWidth();
-                float heightPt = cropBox.getHeight();
-                OFDPageDrawer ofdPageDrawer = new OFDPageDrawer(i, doc.getPage(i), ofdCreator, 1 / POINTS_PER_MM);
-                ofdPageDrawer.drawPage();
-                ofdCreator.addPageContent(i, ofdPageDrawer.getCtLayer(), widthPt / POINTS_PER_MM, heightPt / POINTS_PER_MM);
+        if (options.getParallelism() > 1) {
+            // 多线程转换时各线程需要从原始数据加载各自的文档
+            byte[] pdfBytes = IOUtils.toByteArray(input);
+            try (PDDocument doc = load(pdfBytes, options);
+                 OFDCreator ofdCreator = newCreator(options).open(output, options.getCompressionThreads())) {
+                renderPages(pdfBytes, doc, ofdCreator, options);
+                ofdCreator.finish();
+            }
+        } else {
+            try (PDDocument doc = PDDocument.load(input, options.getMemoryUsageSetting());
+                 OFDCreator ofdCreator = newCreator(options).open(output, options.getCompressionThreads())) {
+                renderPages(doc, ofdCreator, options);
+                ofdCreator.finish();
             }
-            ofdCreator.jar(output);
         }
         end = System.currentTimeMillis();
         logger.info("gen ofd speed time {}", end - start);
     }
 
     public static byte[] convertPdfToOfd(byte[] pdfBytes) {
+        return convertPdfToOfd(pdfBytes, new ConvertOptions());
+    }
+
+    /**
+     * 多线程转换PDF为OFD
+     *
+     * @param pdfBytes    PDF文件内容
+     * @param parallelism 页面转换线程数，小于等于1时按顺序转换，压缩线程数相同
+     * @return OFD文件内容，转换失败返回null
+     */
+    public static byte[] convertPdfToOfd(byte[] pdfBytes, int parallelism) {
+        return convertPdfToOfd(pdfBytes, new ConvertOptions().setParallelism(parallelism));
+    }
+
+    /**
+     * 转换PDF为OFD
+     * <p>
+     * 直接从内存加载PDF，不写临时文件
+     *
+     * @param pdfBytes PDF文件内容
+     * @param options  转换参数
+     * @return OFD文件内容，转换失败返回null
+     */
+    public static byte[] convertPdfToOfd(byte[] pdfBytes, ConvertOptions options) {
         long start;
         long end;
-
-        String tempFilePath = generateTempFilePath();
-        PDDocument doc = null;
-        try {
-            FileUtils.writeByteArrayToFile(new File(tempFilePath), pdfBytes);
-            doc = PDDocument.load(new File(tempFilePath));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PDDocument doc = load(pdfBytes, options);
+             OFDCreator ofdCreator = newCreator(options).open(output, options.getCompressionThreads())) {
             start = System.currentTimeMillis();
-            OFDCreator ofdCreator = new OFDCreator();
-            for (int i = 0; i < doc.getNumberOfPages(); i++) {
-                ofdCreator.addPage(i);
-                PDRectangle cropBox = doc.getPage(i).getCropBox();
-                float widthPt = cropBox.getWidth();
-                float heightPt = cropBox.getHeight();
-                OFDPageDrawer ofdPageDrawer = new OFDPageDrawer(i, doc.getPage(i), ofdCreator, 1 / POINTS_PER_MM);
-                ofdPageDrawer.drawPage();
-                ofdCreator.addPageContent(i, ofdPageDrawer.getCtLayer(), widthPt / POINTS_PER_MM, heightPt / POINTS_PER_MM);
-            }
+            renderPages(pdfBytes, doc, ofdCreator, options);
             end = System.currentTimeMillis();
             logger.info("parse speed time {}", end - start);
-            byte[] ofdBytes = ofdCreator.jar();
-            logger.info("gen ofd speed time {}", end - start);
-            return ofdBytes;
+            ofdCreator.finish();
+            logger.info("gen ofd speed time {}", System.currentTimeMillis() - start);
+            return output.toByteArray();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            try {
-                if (doc != null) {
-                    doc.close();
-                }
-                FileUtils.forceDeleteOnExit(new File(tempFilePath));
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
         return null;
     }
 
-    private static String generateTempFilePath() {
-        return System.getProperty("java.io.tmpdir") + "/" + UUID.randomUUID().toString();
+    private static OFDCreator newCreator(ConvertOptions options) {
+        return new OFDCreator()
+                .setSubsetFonts(options.isSubsetFonts())
+                .setStripHinting(options.isStripHinting())
+                .setImageThreads(options.getImageThreads())
+                .setImagePolicy(options.getImagePolicy())
+                .setNativeColorSpaces(options.isNativeColorSpaces())
+                .setCompositeForms(options.isCompositeForms())
+                .setPathTolerance(options.getPathTolerance())
+                .setCoordinatePrecision(options.getCoordinatePrecision())
+                .setDrawParams(options.isDrawParams())
+                .setCullInvisible(options.isCullInvisible());
+    }
+
+    private static PDDocument load(byte[] pdfBytes, ConvertOptions options) throws IOException {
+        return PDDocument.load(pdfBytes, "", null, null, options.getMemoryUsageSetting());
+    }
+
+    /**
+     * 按顺序逐页转换
+     */
+    private static void renderPages(PDDocument doc, OFDCreator ofdCreator, ConvertOptions options) throws IOException {
+        PageTemplates templates = detectTemplates(doc, ofdCreator, options);
+        FontCache fontCache = new FontCache();
+        for (int i = 0; i < doc.getNumberOfPages(); i++) {
+            ofdCreator.addPage(i);
+            renderPage(i, doc.getPage(i), ofdCreator, options, templates, fontCache).addTo(ofdCreator, i);
+        }
+    }
+
+    /**
+     * 检测页面模板并添加模板页
+     *
+     * @return 页面模板，未开启时返回null
+     */
+    private static PageTemplates detectTemplates(PDDocument doc, OFDCreator ofdCreator, ConvertOptions options) throws IOException {
+        if (!options.isTemplatePages()) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        PageTemplates templates = PageTemplates.detect(doc);
+        for (PageTemplates.Entry template : templates.getTemplates()) {
+            template.setTemplateId(ofdCreator.addTemplatePage(template.getIndex()));
+        }
+        logger.info("detect {} templates speed time {}", templates.getTemplates().size(), System.currentTimeMillis() - start);
+        return templates;
+    }
+
+    /**
+     * 多线程转换页面
+     * <p>
+     * PDFBox对象非线程安全，每个工作线程各自加载一份PDDocument，
+     * 从共享的页码计数器中领取页面，页面完成即写入OFD，页面树按页码顺序预先生成。
+     *
+     * @param pdfBytes    PDF文件内容，用于工作线程加载各自的文档
+     * @param doc         已加载的文档，由第一个工作线程使用
+     * @param ofdCreator  OFD生成器
+     * @param options     转换参数
+     */
+    private static void renderPages(byte[] pdfBytes, PDDocument doc, OFDCreator ofdCreator, ConvertOptions options) throws IOException {
+        int pageCount = doc.getNumberOfPages();
+        int workers = Math.min(options.getParallelism(), pageCount);
+        if (workers <= 1) {
+            renderPages(doc, ofdCreator, options);
+            return;
+        }
+
+        PageTemplates templates = detectTemplates(doc, ofdCreator, options);
+        // 页面树按页码顺序预先生成
+        for (int i = 0; i < pageCount; i++) {
+            ofdCreator.addPage(i);
+        }
+        AtomicInteger nextPage = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> futures = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                boolean shared = w == 0;
+                futures.add(pool.submit(() -> {
+                    PDDocument view = shared ? doc : load(pdfBytes, options);
+                    // 字体信息缓存引用文档中的字体对象，随工作线程的文档一起释放
+                    FontCache fontCache = new FontCache();
+                    try {
+                        int i;
+                        while (!Thread.currentThread().isInterrupted()
+                                && (i = nextPage.getAndIncrement()) < pageCount) {
+                            renderPage(i, view.getPage(i), ofdCreator, options, templates, fontCache)
+                                    .addTo(ofdCreator, i);
+                        }
+                    } finally {
+                        if (!shared) {
+                            view.close();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("页面转换被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("页面转换失败", cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static PageContentWriter renderPage(int idx, PDPage page, OFDCreator ofdCreator, ConvertOptions options,
+                                                PageTemplates templates, FontCache fontCache) throws IOException {
+        PDRectangle cropBox = page.getCropBox();
+        float width = cropBox.getWidth() / POINTS_PER_MM;
+        float height = cropBox.getHeight() / POINTS_PER_MM;
+        PageTemplates.Entry template = templates == null ? null : templates.get(idx);
+        String templateId = template == null ? null : template.getTemplateId();
+        PageContentWriter contentWriter;
+        if (options.isStreamContent()) {
+            contentWriter = new StreamPageContentWriter(ofdCreator.openPageContent(idx), ofdCreator.getNextRid(),
+                    width, height, ofdCreator.getCoordinatePrecision(), templateId);
+        } else {
+            contentWriter = new DomPageContentWriter(ofdCreator.createLayer(), width, height, templateId);
+        }
+        OFDPageDrawer ofdPageDrawer = new OFDPageDrawer(idx, page, ofdCreator, 1 / POINTS_PER_MM, contentWriter);
+        ofdPageDrawer.setFontCache(fontCache);
+        // 参照页绘制模板内容，其他页面丢弃模板部分
+        StreamPageContentWriter templateWriter = null;
+        if (template != null) {
+            if (template.getReferencePage() == idx) {
+                templateWriter = new StreamPageContentWriter(ofdCreator.openTemplateContent(template.getIndex()),
+                        ofdCreator.getNextRid(), width, height, ofdCreator.getCoordinatePrecision(), null);
+            }
+            ofdPageDrawer.setTemplate(template.getOps(), templateWriter);
+        }
+        ofdPageDrawer.drawPage();
+        if (templateWriter != null) {
+            templateWriter.finish();
+        }
+        return contentWriter;
     }
 }
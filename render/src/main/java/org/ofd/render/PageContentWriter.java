@@ -0,0 +1,74 @@
+package org.ofd.render;
+
+import org.ofd.render.utils.PathEncoder;
+
+import java.io.IOException;
+
+/**
+ * 页面内容输出
+ * <p>
+ * OFDPageDrawer按页面对象的类型逐个写出，由输出决定构建DOM还是直接序列化。
+ * 坐标单位为毫米，已按坐标精度四舍五入。
+ */
+public interface PageContentWriter {
+
+    /**
+     * 写出路径对象（PathObject）
+     *
+     * @param id    对象ID
+     * @param x     外接矩形左上角x
+     * @param y     外接矩形左上角y
+     * @param w     外接矩形宽度
+     * @param h     外接矩形高度
+     * @param style 绘制属性
+     * @param data  路径数据（AbbreviatedData），坐标相对外接矩形
+     * @throws IOException IO异常
+     */
+    void addPath(long id, double x, double y, double w, double h, DrawStyle style, PathEncoder data)
+            throws IOException;
+
+    /**
+     * 写出文字对象（TextObject）
+     *
+     * @param text 文字对象
+     * @throws IOException IO异常
+     */
+    void addText(TextItem text) throws IOException;
+
+    /**
+     * 写出图片对象（ImageObject），图片铺满外接矩形
+     *
+     * @param id           对象ID
+     * @param x            外接矩形左上角x
+     * @param y            外接矩形左上角y
+     * @param w            外接矩形宽度
+     * @param h            外接矩形高度
+     * @param resourceId   图片资源ID
+     * @param clipBoundary 已格式化的裁剪路径外接矩形（图片单位坐标），没有裁剪时为null
+     * @param clipData     裁剪路径数据（图片单位坐标），没有裁剪时为null
+     * @throws IOException IO异常
+     */
+    void addImage(long id, double x, double y, double w, double h, String resourceId,
+                  String clipBoundary, PathEncoder clipData) throws IOException;
+
+    /**
+     * 写出引用复合图元的复合对象（CompositeObject），外接矩形为[0, 0, w, h]
+     *
+     * @param id         对象ID
+     * @param w          外接矩形宽度
+     * @param h          外接矩形高度
+     * @param ctm        已格式化的变换矩阵
+     * @param resourceId 复合图元ID
+     * @throws IOException IO异常
+     */
+    void addComposite(long id, double w, double h, String ctm, String resourceId) throws IOException;
+
+    /**
+     * 页面绘制完成，将页面内容加入OFD
+     *
+     * @param ofdCreator OFD生成器
+     * @param idx        页码，从0开始
+     * @throws IOException IO异常
+     */
+    void addTo(OFDCreator ofdCreator, int idx) throws IOException;
+}
@@ -0,0 +1,294 @@
+package org.ofd.render;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 页面模板检测
+ * <p>
+ * 逐页计算内容流中每个操作符的指纹，页面尺寸相同且以相同操作符序列开头的页面
+ * （如报表的页眉、页脚、表格线）共用一个模板页，公共前缀只输出到模板中一次，
+ * 各页面只输出前缀之后的内容。操作数中的资源名称按页面资源解析为对象引用，
+ * 不同页面中同名但不同的资源不会被当作相同。
+ */
+public class PageTemplates {
+
+    /**
+     * 公共前缀至少包含的操作符数，过短的前缀不值得生成模板
+     */
+    private static final int MIN_OPS = 16;
+
+    /**
+     * 在每组的前几页中选择模板参照页，跳过封面等不同的页面
+     */
+    private static final int MAX_REFERENCES = 3;
+
+    private static final COSName[] RESOURCE_TYPES = {COSName.FONT, COSName.XOBJECT, COSName.EXT_G_STATE,
+            COSName.COLORSPACE, COSName.PATTERN, COSName.SHADING, COSName.PROPERTIES};
+
+    /**
+     * 页码 -> 使用的模板
+     */
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>();
+
+    private final List<Entry> templates = new ArrayList<>();
+
+    private PageTemplates() {
+    }
+
+    /**
+     * 检测文档中的页面模板
+     *
+     * @param doc 文档
+     * @return 页面模板
+     * @throws IOException 内容流解析异常
+     */
+    public static PageTemplates detect(PDDocument doc) throws IOException {
+        PageTemplates ret = new PageTemplates();
+        // 页面区域及旋转相同的页面才能共用模板
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < doc.getNumberOfPages(); i++) {
+            PDPage page = doc.getPage(i);
+            PDRectangle cropBox = page.getCropBox();
+            String frame = cropBox.getLowerLeftX() + " " + cropBox.getLowerLeftY() + " "
+                    + cropBox.getWidth() + " " + cropBox.getHeight() + " " + page.getRotation();
+            groups.computeIfAbsent(frame, k -> new ArrayList<>()).add(i);
+        }
+        for (List<Integer> group : groups.values()) {
+            if (group.size() < 2) {
+                continue;
+            }
+            long[][] fingerprints = new long[group.size()][];
+            for (int i = 0; i < group.size(); i++) {
+                fingerprints[i] = fingerprint(doc.getPage(group.get(i)), group.get(i));
+            }
+            ret.select(group, fingerprints);
+        }
+        return ret;
+    }
+
+    /**
+     * 选择节省操作符最多的参照页及前缀长度
+     */
+    private void select(List<Integer> group, long[][] fingerprints) {
+        int bestRef = -1;
+        int bestOps = 0;
+        long bestSaved = 0;
+        for (int r = 0; r < Math.min(MAX_REFERENCES, group.size()); r++) {
+            int[] prefix = new int[group.size()];
+            for (int i = 0; i < group.size(); i++) {
+                prefix[i] = commonPrefix(fingerprints[r], fingerprints[i]);
+            }
+            // 按各页与参照页的公共前缀长度，依次尝试作为模板长度
+            int[] lengths = prefix.clone();
+            Arrays.sort(lengths);
+            for (int k = 0; k < lengths.length - 1; k++) {
+                int ops = lengths[k];
+                int users = lengths.length - k;
+                long saved = (long) ops * (users - 1);
+                if (ops >= MIN_OPS && saved > bestSaved) {
+                    bestRef = r;
+                    bestOps = ops;
+                    bestSaved = saved;
+                }
+            }
+        }
+        if (bestRef < 0) {
+            return;
+        }
+        Entry reference = new Entry(templates.size(), group.get(bestRef), bestOps);
+        templates.add(reference);
+        for (int i = 0; i < group.size(); i++) {
+            if (commonPrefix(fingerprints[bestRef], fingerprints[i]) >= bestOps) {
+                entries.put(group.get(i), reference);
+            }
+        }
+    }
+
+    private static int commonPrefix(long[] a, long[] b) {
+        int n = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < n && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 计算页面内容流中每个操作符的指纹
+     */
+    private static long[] fingerprint(PDPage page, int pageIndex) throws IOException {
+        PDResources resources = page.getResources();
+        COSDictionary resDict = resources == null ? null : resources.getCOSObject();
+        long[] ret = new long[256];
+        int n = 0;
+        StringBuilder sb = new StringBuilder();
+        PDFStreamParser parser = new PDFStreamParser(page);
+        Object token;
+        while ((token = parser.parseNextToken()) != null) {
+            if (token instanceof Operator) {
+                Operator operator = (Operator) token;
+                sb.append(operator.getName());
+                if (operator.getImageParameters() != null) {
+                    append(sb, operator.getImageParameters(), resDict, pageIndex);
+                    sb.append(Arrays.hashCode(operator.getImageData())).append(operator.getImageData().length);
+                }
+                if (n == ret.length) {
+                    ret = Arrays.copyOf(ret, n * 2);
+                }
+                ret[n++] = hash(sb);
+                sb.setLength(0);
+            } else {
+                append(sb, (COSBase) token, resDict, pageIndex);
+                sb.append(' ');
+            }
+        }
+        return Arrays.copyOf(ret, n);
+    }
+
+    private static void append(StringBuilder sb, COSBase operand, COSDictionary resDict, int pageIndex) {
+        if (operand instanceof COSName) {
+            sb.append('/').append(resolve((COSName) operand, resDict, pageIndex));
+        } else if (operand instanceof COSString) {
+            sb.append('(').append(new String(((COSString) operand).getBytes(), StandardCharsets.ISO_8859_1)).append(')');
+        } else if (operand instanceof COSArray) {
+            sb.append('[');
+            for (COSBase item : (COSArray) operand) {
+                append(sb, item, resDict, pageIndex);
+                sb.append(' ');
+            }
+            sb.append(']');
+        } else if (operand instanceof COSDictionary) {
+            sb.append("<<");
+            for (Map.Entry<COSName, COSBase> item : ((COSDictionary) operand).entrySet()) {
+                sb.append(item.getKey().getName()).append(' ');
+                append(sb, item.getValue(), resDict, pageIndex);
+                sb.append(' ');
+            }
+            sb.append(">>");
+        } else {
+            sb.append(operand);
+        }
+    }
+
+    /**
+     * 解析资源名称，间接对象以对象号表示，页面内直接定义的资源不与其他页面相同
+     */
+    private static String resolve(COSName name, COSDictionary resDict, int pageIndex) {
+        if (resDict == null) {
+            return name.getName();
+        }
+        for (COSName type : RESOURCE_TYPES) {
+            COSBase dict = resDict.getDictionaryObject(type);
+            if (!(dict instanceof COSDictionary)) {
+                continue;
+            }
+            COSBase item = ((COSDictionary) dict).getItem(name);
+            if (item instanceof COSObject) {
+                COSObject obj = (COSObject) item;
+                return "R" + obj.getObjectNumber() + "_" + obj.getGenerationNumber();
+            } else if (item instanceof COSName) {
+                return ((COSName) item).getName();
+            } else if (item != null) {
+                return "P" + pageIndex + name.getName();
+            }
+        }
+        return name.getName();
+    }
+
+    /**
+     * 64位FNV-1a
+     */
+    private static long hash(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * @return 检测到的模板，按模板序号排列
+     */
+    public List<Entry> getTemplates() {
+        return templates;
+    }
+
+    /**
+     * @param pageIndex 页码，从0开始
+     * @return 页面使用的模板，不使用模板时返回null
+     */
+    public Entry get(int pageIndex) {
+        return entries.get(pageIndex);
+    }
+
+    /**
+     * 模板页
+     */
+    public static class Entry {
+        private final int index;
+        private final int referencePage;
+        private final int ops;
+        private String templateId;
+
+        Entry(int index, int referencePage, int ops) {
+            this.index = index;
+            this.referencePage = referencePage;
+            this.ops = ops;
+        }
+
+        /**
+         * @return 模板序号，从0开始
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return 参照页页码，模板内容由该页绘制
+         */
+        public int getReferencePage() {
+            return referencePage;
+        }
+
+        /**
+         * @return 模板包含的页面内容流操作符数
+         */
+        public int getOps() {
+            return ops;
+        }
+
+        /**
+         * @return 模板页ID
+         */
+        public String getTemplateId() {
+            return templateId;
+        }
+
+        /**
+         * @param templateId 模板页ID
+         */
+        public void setTemplateId(String templateId) {
+            this.templateId = templateId;
+        }
+    }
+}
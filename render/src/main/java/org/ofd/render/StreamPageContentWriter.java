@@ -0,0 +1,357 @@
+package org.ofd.render;
+
+import org.ofd.render.utils.FixedFormat;
+import org.ofd.render.utils.PathEncoder;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 流式页面内容输出
+ * <p>
+ * 页面对象在绘制时直接按属性写出为Content.xml，不构建ofdrw元素也不经过XMLWriter，
+ * 路径数据从路径编码的缓冲区直接写出。输出流一般是归档中的页面条目
+ * （{@link OFDCreator#openPageContent(int)}），页面完成后不在内存中保留页面内容。
+ */
+public class StreamPageContentWriter implements PageContentWriter {
+
+    private static final String OFD_URI = "http://www.ofdspec.org/2016";
+
+    /**
+     * 未指定输出流时的内存缓冲
+     */
+    private final ByteArrayOutputStream bos;
+
+    private final Writer out;
+
+    private final char[] numBuf = new char[FixedFormat.MAX_CHARS];
+
+    private boolean finished = false;
+
+    /**
+     * 坐标的小数位数
+     */
+    private final int precision;
+
+    /**
+     * 页面内容缓冲在内存中，完成后通过{@link #toByteArray()}获取
+     *
+     * @param layerId   图层ID
+     * @param width     页面宽度（毫米）
+     * @param height    页面高度（毫米）
+     * @param precision 坐标的小数位数
+     * @throws IOException IO异常
+     */
+    public StreamPageContentWriter(long layerId, float width, float height, int precision) throws IOException {
+        this(null, layerId, width, height, precision, null);
+    }
+
+    /**
+     * @param output     Content.xml输出流，页面完成后关闭；为null时缓冲在内存中
+     * @param layerId    图层ID
+     * @param width      页面宽度（毫米）
+     * @param height     页面高度（毫米）
+     * @param precision  坐标的小数位数
+     * @param templateId 页面使用的模板ID，为null时不使用模板
+     * @throws IOException IO异常
+     */
+    public StreamPageContentWriter(OutputStream output, long layerId, float width, float height, int precision,
+                                   String templateId) throws IOException {
+        this.precision = FixedFormat.checkPrecision(precision);
+        if (output == null) {
+            bos = new ByteArrayOutputStream(8192);
+            output = bos;
+        } else {
+            bos = null;
+        }
+        out = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 8192);
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<ofd:Page xmlns:ofd=\"" + OFD_URI + "\">");
+        if (templateId != null) {
+            out.write("<ofd:Template");
+            attr("TemplateID", templateId);
+            out.write(" ZOrder=\"Background\"/>");
+        }
+        out.write("<ofd:Area><ofd:PhysicalBox>0 0 ");
+        number(width, precision);
+        out.write(' ');
+        number(height, precision);
+        out.write("</ofd:PhysicalBox></ofd:Area>");
+        out.write("<ofd:Content><ofd:Layer ID=\"" + layerId + "\">");
+    }
+
+    @Override
+    public void addPath(long id, double x, double y, double w, double h, DrawStyle style, PathEncoder data)
+            throws IOException {
+        checkOpen();
+        out.write("<ofd:PathObject ID=\"" + id + "\"");
+        boundary(x, y, w, h);
+        styleAttrs(style);
+        bool("Stroke", style.getStroke());
+        bool("Fill", style.getFill());
+        out.write('>');
+        color("StrokeColor", style.getStrokeColor());
+        color("FillColor", style.getFillColor());
+        abbreviatedData(data);
+        out.write("</ofd:PathObject>");
+    }
+
+    @Override
+    public void addText(TextItem text) throws IOException {
+        checkOpen();
+        out.write("<ofd:TextObject ID=\"" + text.getId() + "\"");
+        boundary(text.getX(), text.getY(), text.getWidth(), text.getHeight());
+        attr("Font", text.getFont());
+        out.write(" Size=\"");
+        number(text.getSize(), precision);
+        out.write('"');
+        if (text.getCtm() != null) {
+            attr("CTM", text.getCtm());
+        }
+        if (text.getHScale() != null) {
+            out.write(" HScale=\"");
+            number(text.getHScale(), FixedFormat.MAX_PRECISION);
+            out.write('"');
+        }
+        DrawStyle style = text.getStyle();
+        styleAttrs(style);
+        bool("Fill", style.getFill());
+        bool("Stroke", style.getStroke());
+        out.write('>');
+        color("FillColor", style.getFillColor());
+        color("StrokeColor", style.getStrokeColor());
+        String content = text.getContent();
+        List<String> glyphs = text.getGlyphs();
+        if (glyphs != null && !glyphs.isEmpty()) {
+            out.write("<ofd:CGTransform CodePosition=\"0\" CodeCount=\"" + content.length()
+                    + "\" GlyphCount=\"" + content.length() + "\"><ofd:Glyphs>");
+            join(glyphs);
+            out.write("</ofd:Glyphs></ofd:CGTransform>");
+        }
+        out.write("<ofd:TextCode X=\"");
+        number(text.getCodeX(), precision);
+        out.write("\" Y=\"");
+        number(text.getCodeY(), precision);
+        out.write('"');
+        if (text.getDeltaX() != null && !text.getDeltaX().isEmpty()) {
+            out.write(" DeltaX=\"");
+            join(text.getDeltaX());
+            out.write('"');
+        }
+        if (text.getDeltaY() != null && !text.getDeltaY().isEmpty()) {
+            out.write(" DeltaY=\"");
+            join(text.getDeltaY());
+            out.write('"');
+        }
+        out.write('>');
+        escape(content, false);
+        out.write("</ofd:TextCode></ofd:TextObject>");
+    }
+
+    @Override
+    public void addImage(long id, double x, double y, double w, double h, String resourceId,
+                         String clipBoundary, PathEncoder clipData) throws IOException {
+        checkOpen();
+        out.write("<ofd:ImageObject ID=\"" + id + "\"");
+        boundary(x, y, w, h);
+        out.write(" CTM=\"");
+        number(w, precision);
+        out.write(" 0 0 ");
+        number(h, precision);
+        out.write(" 0 0\"");
+        attr("ResourceID", resourceId);
+        if (clipData == null) {
+            out.write("/>");
+            return;
+        }
+        out.write("><ofd:Clips><ofd:Clip><ofd:Area><ofd:Path");
+        attr("Boundary", clipBoundary);
+        out.write(" Stroke=\"false\" Fill=\"true\">");
+        abbreviatedData(clipData);
+        out.write("</ofd:Path></ofd:Area></ofd:Clip></ofd:Clips></ofd:ImageObject>");
+    }
+
+    @Override
+    public void addComposite(long id, double w, double h, String ctm, String resourceId) throws IOException {
+        checkOpen();
+        out.write("<ofd:CompositeObject ID=\"" + id + "\"");
+        boundary(0, 0, w, h);
+        attr("CTM", ctm);
+        attr("ResourceID", resourceId);
+        out.write("/>");
+    }
+
+    /**
+     * 结束页面；指定了输出流时内容已写入该输出流，否则加入OFD
+     */
+    @Override
+    public void addTo(OFDCreator ofdCreator, int idx) throws IOException {
+        if (bos != null) {
+            ofdCreator.addPageContent(idx, toByteArray());
+        } else {
+            finish();
+        }
+    }
+
+    /**
+     * 结束页面并关闭输出流
+     *
+     * @throws IOException IO异常
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            finished = true;
+            out.write("</ofd:Layer></ofd:Content></ofd:Page>");
+            out.close();
+        }
+    }
+
+    /**
+     * 结束页面并返回Content.xml内容，只用于未指定输出流的情况
+     *
+     * @return Content.xml内容
+     * @throws IOException IO异常
+     */
+    public byte[] toByteArray() throws IOException {
+        if (bos == null) {
+            throw new IllegalStateException("页面内容已写入输出流");
+        }
+        finish();
+        return bos.toByteArray();
+    }
+
+    private void checkOpen() {
+        if (finished) {
+            throw new IllegalStateException("页面内容已完成");
+        }
+    }
+
+    private void boundary(double x, double y, double w, double h) throws IOException {
+        out.write(" Boundary=\"");
+        number(x, precision);
+        out.write(' ');
+        number(y, precision);
+        out.write(' ');
+        number(w, precision);
+        out.write(' ');
+        number(h, precision);
+        out.write('"');
+    }
+
+    /**
+     * 绘制参数引用、线宽及线型属性
+     */
+    private void styleAttrs(DrawStyle style) throws IOException {
+        if (style.getDrawParam() != null) {
+            attr("DrawParam", style.getDrawParam());
+        }
+        if (style.getLineWidth() != null) {
+            out.write(" LineWidth=\"");
+            number(style.getLineWidth(), precision);
+            out.write('"');
+        }
+        String[] lineStyle = style.getLineStyle();
+        if (lineStyle != null) {
+            for (int i = 0; i < lineStyle.length; i++) {
+                if (lineStyle[i] != null) {
+                    attr(DrawStyle.LINE_STYLE_ATTRIBUTES[i], lineStyle[i]);
+                }
+            }
+        }
+    }
+
+    private void color(String name, DrawStyle.Color color) throws IOException {
+        if (color == null) {
+            return;
+        }
+        out.write("<ofd:");
+        out.write(name);
+        attr("Value", color.getValue());
+        if (color.getColorSpace() != null) {
+            attr("ColorSpace", color.getColorSpace());
+        }
+        out.write("/>");
+    }
+
+    private void abbreviatedData(PathEncoder data) throws IOException {
+        out.write("<ofd:AbbreviatedData>");
+        data.writeTo(out);
+        out.write("</ofd:AbbreviatedData>");
+    }
+
+    private void bool(String name, Boolean value) throws IOException {
+        if (value != null) {
+            out.write(value ? " " + name + "=\"true\"" : " " + name + "=\"false\"");
+        }
+    }
+
+    private void attr(String name, String value) throws IOException {
+        out.write(' ');
+        out.write(name);
+        out.write("=\"");
+        escape(value, true);
+        out.write('"');
+    }
+
+    /**
+     * 空格分隔写出已格式化的数值
+     */
+    private void join(List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(' ');
+            }
+            out.write(values.get(i));
+        }
+    }
+
+    private void number(double value, int digits) throws IOException {
+        out.write(numBuf, 0, FixedFormat.write(numBuf, 0, value, digits));
+    }
+
+    /**
+     * 转义文字内容及属性值，与dom4j的XMLWriter一致
+     */
+    private void escape(String s, boolean attribute) throws IOException {
+        int start = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            String entity;
+            switch (c) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '"':
+                    entity = attribute ? "&quot;" : null;
+                    break;
+                case '\t':
+                case '\n':
+                case '\r':
+                    entity = attribute ? "&#" + (int) c + ";" : null;
+                    break;
+                default:
+                    entity = c < 32 ? "&#" + (int) c + ";" : null;
+                    break;
+            }
+            if (entity != null) {
+                out.write(s, start, i - start);
+                out.write(entity);
+                start = i + 1;
+            }
+        }
+        out.write(s, start, len - start);
+    }
+}
@@ -0,0 +1,216 @@
+package org.ofd.render;
+
+import java.util.List;
+
+/**
+ * 待输出的文字对象（TextObject）
+ * <p>
+ * 一个文字对象只包含一个TextCode及最多一个字形变换（CGTransform），
+ * 由{@link PageContentWriter#addText}输出。
+ */
+public class TextItem {
+
+    private final long id;
+
+    private double x;
+
+    private double y;
+
+    private double width;
+
+    private double height;
+
+    private String font;
+
+    private double size;
+
+    private String ctm;
+
+    private Double hScale;
+
+    private DrawStyle style = new DrawStyle();
+
+    private double codeX;
+
+    private double codeY;
+
+    private String content;
+
+    private List<String> deltaX;
+
+    private List<String> deltaY;
+
+    private List<String> glyphs;
+
+    /**
+     * @param id 对象ID
+     */
+    public TextItem(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 设置外接矩形
+     *
+     * @return this
+     */
+    public TextItem setBoundary(double x, double y, double width, double height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public TextItem setWidth(double width) {
+        this.width = width;
+        return this;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public TextItem setHeight(double height) {
+        this.height = height;
+        return this;
+    }
+
+    /**
+     * @return 字体ID
+     */
+    public String getFont() {
+        return font;
+    }
+
+    public TextItem setFont(String font) {
+        this.font = font;
+        return this;
+    }
+
+    /**
+     * @return 字号（毫米）
+     */
+    public double getSize() {
+        return size;
+    }
+
+    public TextItem setSize(double size) {
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * @return 已格式化的变换矩阵，为null时不输出
+     */
+    public String getCtm() {
+        return ctm;
+    }
+
+    public TextItem setCtm(String ctm) {
+        this.ctm = ctm;
+        return this;
+    }
+
+    /**
+     * @return 横向缩放，为null时不输出
+     */
+    public Double getHScale() {
+        return hScale;
+    }
+
+    public TextItem setHScale(Double hScale) {
+        this.hScale = hScale;
+        return this;
+    }
+
+    /**
+     * @return 绘制属性
+     */
+    public DrawStyle getStyle() {
+        return style;
+    }
+
+    /**
+     * 设置第一个字形的位置（相对外接矩形）
+     *
+     * @return this
+     */
+    public TextItem setCodePosition(double codeX, double codeY) {
+        this.codeX = codeX;
+        this.codeY = codeY;
+        return this;
+    }
+
+    public double getCodeX() {
+        return codeX;
+    }
+
+    public double getCodeY() {
+        return codeY;
+    }
+
+    /**
+     * @return 文字内容
+     */
+    public String getContent() {
+        return content;
+    }
+
+    public TextItem setContent(String content) {
+        this.content = content;
+        return this;
+    }
+
+    /**
+     * @return 已格式化的横向字符间距，为空时不输出
+     */
+    public List<String> getDeltaX() {
+        return deltaX;
+    }
+
+    public TextItem setDeltaX(List<String> deltaX) {
+        this.deltaX = deltaX;
+        return this;
+    }
+
+    /**
+     * @return 已格式化的纵向字符间距，为空时不输出
+     */
+    public List<String> getDeltaY() {
+        return deltaY;
+    }
+
+    public TextItem setDeltaY(List<String> deltaY) {
+        this.deltaY = deltaY;
+        return this;
+    }
+
+    /**
+     * @return 字形索引，每个字符对应一个字形，为空时不输出字形变换
+     */
+    public List<String> getGlyphs() {
+        return glyphs;
+    }
+
+    public TextItem setGlyphs(List<String> glyphs) {
+        this.glyphs = glyphs;
+        return this;
+    }
+}
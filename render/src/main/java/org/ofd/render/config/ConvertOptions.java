@@ -0,0 +1,475 @@
+package org.ofd.render.config;
+
+import org.ofd.render.utils.FixedFormat;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+
+import java.io.File;
+
+/**
+ * PDF转OFD参数
+ */
+public class ConvertOptions {
+
+    // 各参数的默认值，OFDCreator未设置参数时使用相同的值
+
+    /**
+     * 默认打包时生成字体子集
+     */
+    public static final boolean DEFAULT_SUBSET_FONTS = true;
+
+    /**
+     * 默认生成字体子集时去除字形指令
+     */
+    public static final boolean DEFAULT_STRIP_HINTING = false;
+
+    /**
+     * 默认图片编码线程数
+     */
+    public static final int DEFAULT_IMAGE_THREADS = 0;
+
+    /**
+     * 默认使用灰度、CMYK颜色空间输出颜色
+     */
+    public static final boolean DEFAULT_NATIVE_COLOR_SPACES = true;
+
+    /**
+     * 默认重复使用的Form XObject转换为复合图元
+     */
+    public static final boolean DEFAULT_COMPOSITE_FORMS = true;
+
+    /**
+     * 默认使用公共资源中的绘制参数
+     */
+    public static final boolean DEFAULT_DRAW_PARAMS = true;
+
+    /**
+     * 默认丢弃不可见的对象
+     */
+    public static final boolean DEFAULT_CULL_INVISIBLE = true;
+
+    /**
+     * 默认路径简化容差（毫米）
+     */
+    public static final double DEFAULT_PATH_TOLERANCE = 0.01;
+
+    /**
+     * 默认页面内容中坐标的小数位数
+     */
+    public static final int DEFAULT_COORDINATE_PRECISION = 2;
+
+    /**
+     * PDFBox解析文档时的缓存策略，默认只使用内存
+     */
+    private MemoryUsageSetting memoryUsageSetting = MemoryUsageSetting.setupMainMemoryOnly();
+
+    /**
+     * 页面转换线程数，小于等于1时按顺序转换；未设置压缩线程数时也是压缩线程数
+     */
+    private int parallelism = 1;
+
+    /**
+     * 打包时的压缩线程数，为0时与页面转换线程数相同，为1时在写入线程中压缩
+     */
+    private int compressionThreads = 0;
+
+    /**
+     * 流式写出页面内容，为false时先构建整页DOM再序列化（兼容模式）
+     */
+    private boolean streamContent = true;
+
+    /**
+     * 打包时只保留嵌入字体中使用到的字形
+     */
+    private boolean subsetFonts = DEFAULT_SUBSET_FONTS;
+
+    /**
+     * 生成字体子集时去除字形指令（hinting）
+     */
+    private boolean stripHinting = DEFAULT_STRIP_HINTING;
+
+    /**
+     * 图片PNG编码线程数，为0时在页面绘制线程中编码。
+     * 异步编码时内容相同的图片共用图片文件，但各自保留多媒体资源条目
+     */
+    private int imageThreads = DEFAULT_IMAGE_THREADS;
+
+    /**
+     * 图片转换策略
+     */
+    private ImagePolicy imagePolicy = new ImagePolicy();
+
+    /**
+     * DeviceGray、DeviceCMYK颜色使用OFD的GRAY、CMYK颜色空间输出，不转换为RGB
+     */
+    private boolean nativeColorSpaces = DEFAULT_NATIVE_COLOR_SPACES;
+
+    /**
+     * 重复使用的Form XObject转换为复合图元（CompositeGraphicUnit），只转换一次
+     */
+    private boolean compositeForms = DEFAULT_COMPOSITE_FORMS;
+
+    /**
+     * 颜色、线宽及线型写入公共资源中的绘制参数（DrawParam），相同的组合只输出一次
+     */
+    private boolean drawParams = DEFAULT_DRAW_PARAMS;
+
+    /**
+     * 丢弃完全位于页面裁剪框或当前裁剪区域之外的对象，常见于拼版、裁切后的PDF
+     */
+    private boolean cullInvisible = DEFAULT_CULL_INVISIBLE;
+
+    /**
+     * 检测各页面相同的开头内容（页眉、页脚、表格线等），生成模板页，只输出一次
+     */
+    private boolean templatePages = false;
+
+    /**
+     * 路径简化容差（毫米），在该范围内去掉重合点、共线点并把细小曲线转为直线，0表示不简化
+     */
+    private double pathTolerance = DEFAULT_PATH_TOLERANCE;
+
+    /**
+     * 页面内容中坐标的小数位数（毫米），2表示精确到0.01毫米
+     */
+    private int coordinatePrecision = DEFAULT_COORDINATE_PRECISION;
+
+    public ConvertOptions() {
+    }
+
+    /**
+     * 只使用内存缓存
+     *
+     * @return this
+     */
+    public ConvertOptions setMainMemoryOnly() {
+        this.memoryUsageSetting = MemoryUsageSetting.setupMainMemoryOnly()
+                .setTempDir(memoryUsageSetting.getTempDir());
+        return this;
+    }
+
+    /**
+     * 内存与临时文件混合缓存，内存用量超过上限后写入临时文件
+     * <p>
+     * 多线程转换时每个线程各自加载文档，上限对每个线程分别生效
+     *
+     * @param maxMainMemoryBytes 内存缓存上限（字节）
+     * @return this
+     */
+    public ConvertOptions setMixed(long maxMainMemoryBytes) {
+        this.memoryUsageSetting = MemoryUsageSetting.setupMixed(maxMainMemoryBytes)
+                .setTempDir(memoryUsageSetting.getTempDir());
+        return this;
+    }
+
+    /**
+     * 只使用临时文件缓存
+     *
+     * @return this
+     */
+    public ConvertOptions setTempFileOnly() {
+        this.memoryUsageSetting = MemoryUsageSetting.setupTempFileOnly()
+                .setTempDir(memoryUsageSetting.getTempDir());
+        return this;
+    }
+
+    /**
+     * 设置临时文件目录，不设置时使用java.io.tmpdir
+     *
+     * @param tempDir 临时文件目录
+     * @return this
+     */
+    public ConvertOptions setTempDir(File tempDir) {
+        this.memoryUsageSetting.setTempDir(tempDir);
+        return this;
+    }
+
+    /**
+     * @return PDFBox缓存策略
+     */
+    public MemoryUsageSetting getMemoryUsageSetting() {
+        return memoryUsageSetting;
+    }
+
+    /**
+     * 设置 PDFBox缓存策略
+     *
+     * @param memoryUsageSetting PDFBox缓存策略
+     * @return this
+     */
+    public ConvertOptions setMemoryUsageSetting(MemoryUsageSetting memoryUsageSetting) {
+        if (memoryUsageSetting == null) {
+            throw new IllegalArgumentException("缓存策略（memoryUsageSetting）不能为空");
+        }
+        this.memoryUsageSetting = memoryUsageSetting;
+        return this;
+    }
+
+    /**
+     * @return 页面转换线程数
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 设置 页面转换线程数
+     *
+     * @param parallelism 线程数，小于等于1时按顺序转换；未设置压缩线程数时也按该线程数压缩
+     * @return this
+     */
+    public ConvertOptions setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @return 实际使用的压缩线程数，未设置时为页面转换线程数
+     */
+    public int getCompressionThreads() {
+        return compressionThreads > 0 ? compressionThreads : Math.max(parallelism, 1);
+    }
+
+    /**
+     * 设置 打包时的压缩线程数
+     * <p>
+     * 页面绘制与压缩的负载不同，例如页面较少而图片较多时可以单独增加压缩线程
+     *
+     * @param compressionThreads 线程数，为0时与页面转换线程数相同，为1时在写入线程中压缩
+     * @return this
+     */
+    public ConvertOptions setCompressionThreads(int compressionThreads) {
+        if (compressionThreads < 0) {
+            throw new IllegalArgumentException("压缩线程数（compressionThreads）不能小于0");
+        }
+        this.compressionThreads = compressionThreads;
+        return this;
+    }
+
+    /**
+     * @return 是否流式写出页面内容
+     */
+    public boolean isStreamContent() {
+        return streamContent;
+    }
+
+    /**
+     * 设置 是否流式写出页面内容
+     *
+     * @param streamContent 为false时先构建整页DOM再序列化
+     * @return this
+     */
+    public ConvertOptions setStreamContent(boolean streamContent) {
+        this.streamContent = streamContent;
+        return this;
+    }
+
+    /**
+     * @return 是否生成字体子集
+     */
+    public boolean isSubsetFonts() {
+        return subsetFonts;
+    }
+
+    /**
+     * 设置 是否生成字体子集
+     *
+     * @param subsetFonts 为true时只保留使用到的字形，字形ID不变
+     * @return this
+     */
+    public ConvertOptions setSubsetFonts(boolean subsetFonts) {
+        this.subsetFonts = subsetFonts;
+        return this;
+    }
+
+    /**
+     * @return 生成字体子集时是否去除字形指令
+     */
+    public boolean isStripHinting() {
+        return stripHinting;
+    }
+
+    /**
+     * 设置 生成字体子集时是否去除字形指令
+     *
+     * @param stripHinting 为true时去除字形指令及fpgm、prep、cvt等表
+     * @return this
+     */
+    public ConvertOptions setStripHinting(boolean stripHinting) {
+        this.stripHinting = stripHinting;
+        return this;
+    }
+
+    /**
+     * @return 图片编码线程数
+     */
+    public int getImageThreads() {
+        return imageThreads;
+    }
+
+    /**
+     * 设置 图片编码线程数
+     *
+     * @param imageThreads 线程数，为0时在页面绘制线程中编码
+     * @return this
+     */
+    public ConvertOptions setImageThreads(int imageThreads) {
+        if (imageThreads < 0) {
+            throw new IllegalArgumentException("图片编码线程数（imageThreads）不能小于0");
+        }
+        this.imageThreads = imageThreads;
+        return this;
+    }
+
+    /**
+     * @return 图片转换策略
+     */
+    public ImagePolicy getImagePolicy() {
+        return imagePolicy;
+    }
+
+    /**
+     * 设置 图片转换策略
+     *
+     * @param imagePolicy 图片转换策略
+     * @return this
+     */
+    public ConvertOptions setImagePolicy(ImagePolicy imagePolicy) {
+        if (imagePolicy == null) {
+            throw new IllegalArgumentException("图片转换策略（imagePolicy）不能为空");
+        }
+        this.imagePolicy = imagePolicy;
+        return this;
+    }
+
+    /**
+     * @return 是否使用灰度、CMYK颜色空间输出颜色
+     */
+    public boolean isNativeColorSpaces() {
+        return nativeColorSpaces;
+    }
+
+    /**
+     * 设置 是否使用灰度、CMYK颜色空间输出颜色
+     *
+     * @param nativeColorSpaces 为false时所有颜色转换为RGB
+     * @return this
+     */
+    public ConvertOptions setNativeColorSpaces(boolean nativeColorSpaces) {
+        this.nativeColorSpaces = nativeColorSpaces;
+        return this;
+    }
+
+    /**
+     * @return 是否将重复使用的Form XObject转换为复合图元
+     */
+    public boolean isCompositeForms() {
+        return compositeForms;
+    }
+
+    /**
+     * 设置 是否将重复使用的Form XObject转换为复合图元
+     *
+     * @param compositeForms 为false时每次使用都重新绘制Form内容
+     * @return this
+     */
+    public ConvertOptions setCompositeForms(boolean compositeForms) {
+        this.compositeForms = compositeForms;
+        return this;
+    }
+
+    /**
+     * @return 是否使用公共资源中的绘制参数
+     */
+    public boolean isDrawParams() {
+        return drawParams;
+    }
+
+    /**
+     * 设置 是否使用公共资源中的绘制参数
+     *
+     * @param drawParams 为false时每个对象单独输出颜色及线宽
+     * @return this
+     */
+    public ConvertOptions setDrawParams(boolean drawParams) {
+        this.drawParams = drawParams;
+        return this;
+    }
+
+    /**
+     * @return 是否丢弃不可见的对象
+     */
+    public boolean isCullInvisible() {
+        return cullInvisible;
+    }
+
+    /**
+     * 设置 是否丢弃不可见的对象
+     *
+     * @param cullInvisible 为false时页面外的对象也输出
+     * @return this
+     */
+    public ConvertOptions setCullInvisible(boolean cullInvisible) {
+        this.cullInvisible = cullInvisible;
+        return this;
+    }
+
+    /**
+     * @return 是否检测页面模板
+     */
+    public boolean isTemplatePages() {
+        return templatePages;
+    }
+
+    /**
+     * 设置 是否检测页面模板
+     * <p>
+     * 转换前需要额外解析一遍所有页面的内容流，适合页眉、页脚、表格线相同的多页报表
+     *
+     * @param templatePages 为true时相同的开头内容输出到模板页，各页面引用模板
+     * @return this
+     */
+    public ConvertOptions setTemplatePages(boolean templatePages) {
+        this.templatePages = templatePages;
+        return this;
+    }
+
+    /**
+     * @return 路径简化容差（毫米）
+     */
+    public double getPathTolerance() {
+        return pathTolerance;
+    }
+
+    /**
+     * 设置 路径简化容差
+     *
+     * @param pathTolerance 容差（毫米），0表示不简化
+     * @return this
+     */
+    public ConvertOptions setPathTolerance(double pathTolerance) {
+        if (pathTolerance < 0) {
+            throw new IllegalArgumentException("路径简化容差（pathTolerance）不能小于0");
+        }
+        this.pathTolerance = pathTolerance;
+        return this;
+    }
+
+    /**
+     * @return 页面内容中坐标的小数位数
+     */
+    public int getCoordinatePrecision() {
+        return coordinatePrecision;
+    }
+
+    /**
+     * 设置 页面内容中坐标的小数位数
+     *
+     * @param coordinatePrecision 小数位数，0~6
+     * @return this
+     */
+    public ConvertOptions setCoordinatePrecision(int coordinatePrecision) {
+        this.coordinatePrecision = FixedFormat.checkPrecision(coordinatePrecision);
+        return this;
+    }
+}
@@ -0,0 +1,111 @@
+package org.ofd.render.config;
+
+/**
+ * 图片转换策略
+ */
+public class ImagePolicy {
+
+    /**
+     * 图片最大有效分辨率（DPI），按图片在页面上的实际尺寸计算，0表示不限制
+     */
+    private float maxDpi = 0;
+
+    /**
+     * 二值图片按1位、灰度图片按8位灰度编码
+     */
+    private boolean reduceBitDepth = true;
+
+    /**
+     * 照片类图片（非索引色、不透明）的JPEG压缩质量，0~1，0表示使用无损的PNG
+     */
+    private float jpegQuality = 0;
+
+    /**
+     * 单张图片解码后占用内存的上限（字节），超过时隔行采样解码，0表示不限制
+     */
+    private long maxImageMemory = 256L * 1024 * 1024;
+
+    public ImagePolicy() {
+    }
+
+    /**
+     * @return 图片最大有效分辨率
+     */
+    public float getMaxDpi() {
+        return maxDpi;
+    }
+
+    /**
+     * 设置 图片最大有效分辨率，超过时按该分辨率缩小图片
+     *
+     * @param maxDpi 最大分辨率（DPI），0表示不限制
+     * @return this
+     */
+    public ImagePolicy setMaxDpi(float maxDpi) {
+        if (maxDpi < 0) {
+            throw new IllegalArgumentException("最大分辨率（maxDpi）不能小于0");
+        }
+        this.maxDpi = maxDpi;
+        return this;
+    }
+
+    /**
+     * @return 是否按原始位深编码二值及灰度图片
+     */
+    public boolean isReduceBitDepth() {
+        return reduceBitDepth;
+    }
+
+    /**
+     * 设置 是否按原始位深编码二值及灰度图片
+     *
+     * @param reduceBitDepth 为false时统一编码为RGB
+     * @return this
+     */
+    public ImagePolicy setReduceBitDepth(boolean reduceBitDepth) {
+        this.reduceBitDepth = reduceBitDepth;
+        return this;
+    }
+
+    /**
+     * @return JPEG压缩质量
+     */
+    public float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    /**
+     * 设置 照片类图片的JPEG压缩质量
+     *
+     * @param jpegQuality 压缩质量，0~1，0表示使用无损的PNG
+     * @return this
+     */
+    public ImagePolicy setJpegQuality(float jpegQuality) {
+        if (jpegQuality < 0 || jpegQuality > 1) {
+            throw new IllegalArgumentException("JPEG压缩质量（jpegQuality）应在0~1之间");
+        }
+        this.jpegQuality = jpegQuality;
+        return this;
+    }
+
+    /**
+     * @return 单张图片解码后占用内存的上限（字节）
+     */
+    public long getMaxImageMemory() {
+        return maxImageMemory;
+    }
+
+    /**
+     * 设置 单张图片解码后占用内存的上限，超过时按采样间隔解码为较小的图片
+     *
+     * @param maxImageMemory 内存上限（字节），0表示不限制
+     * @return this
+     */
+    public ImagePolicy setMaxImageMemory(long maxImageMemory) {
+        if (maxImageMemory < 0) {
+            throw new IllegalArgumentException("图片内存上限（maxImageMemory）不能小于0");
+        }
+        this.maxImageMemory = maxImageMemory;
+        return this;
+    }
+}
@@ -3,6 +3,10 @@ public class OfdResIdDefine {
 
 	public static final long RID_ColorSpace = 1;
 
+	public static final long RID_ColorSpace_Gray = 2;
+
+	public static final long RID_ColorSpace_CMYK = 3;
+
 	public static final long RID_VarStart = 100;
 
 }
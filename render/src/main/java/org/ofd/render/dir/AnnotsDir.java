@@ -59,6 +59,19 @@ public class AnnotsDir implements DirCollect {
 		return virtualFileMap;
 	}
 
+	@Override
+	public void collect(String base, ArchiveSink sink) throws IOException {
+		String dir = Paths.get(base, "Annots").toString();
+
+		if (annotations != null) {
+			DocObjDump.dump(annotations, Paths.get(dir, "Annotations.xml").toString(), sink);
+		}
+
+		if (this.pageAnnot != null) {
+			DocObjDump.dump(pageAnnot, Paths.get(dir, "Annotation.xml").toString(), sink);
+		}
+	}
+
 	/**
      * 注释文档
      */
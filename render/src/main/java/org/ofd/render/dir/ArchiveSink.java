@@ -0,0 +1,40 @@
+package org.ofd.render.dir;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 归档输出
+ * <p>
+ * 目录对象把文件条目直接写入归档，每个条目写完即压缩输出，
+ * 不再需要在内存中汇总整个文档。实现须支持多线程写入，
+ * 并允许同时打开多个条目（如页面内容与模板内容），条目在关闭时写入归档。
+ */
+public interface ArchiveSink extends Closeable {
+
+    /**
+     * 写入文件条目
+     *
+     * @param loc  条目路径
+     * @param data 文件内容
+     * @throws IOException IO异常
+     */
+    void put(String loc, byte[] data) throws IOException;
+
+    /**
+     * 打开文件条目输出流，关闭输出流即完成该条目
+     *
+     * @param loc 条目路径
+     * @return 条目输出流
+     * @throws IOException IO异常
+     */
+    OutputStream open(String loc) throws IOException;
+
+    /**
+     * 写入所有条目及中央目录，不关闭底层输出流
+     *
+     * @throws IOException IO异常
+     */
+    void finish() throws IOException;
+}
@@ -6,6 +6,7 @@ import org.ofdrw.core.attachment.Attachments;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -178,4 +179,35 @@ public class AttachsDir implements DirCollect {
 		return virtualFileMap;
 	}
 
+	@Override
+	public void collect(String base, ArchiveSink sink) throws IOException {
+		if (attachments == null) {
+			throw new IllegalArgumentException("文档根节点（Attachments.xml）为空");
+		}
+		String dir = Paths.get(base, "Attachs").toString();
+		//1. 添加Attachments.xml
+		DocObjDump.dump(attachments, Paths.get(dir, "Attachments.xml").toString(), sink);
+		//2. 添加附件
+		//2.1. xml附件
+		if (attachXmlMap != null) {
+			for (Map.Entry<String, Element> entry : attachXmlMap.entrySet()) {
+				DocObjDump.dump(entry.getValue(), Paths.get(dir, entry.getKey()).toString(), sink);
+			}
+		}
+		//2.2 path指定的附件文件
+		if (attachPathMap != null) {
+			for (Map.Entry<String, Path> entry : attachPathMap.entrySet()) {
+				try (OutputStream out = sink.open(Paths.get(dir, entry.getKey()).toString())) {
+					Files.copy(entry.getValue(), out);
+				}
+			}
+		}
+		//2.3 二进制文件
+		if (attachDataMap != null) {
+			for (Map.Entry<String, byte[]> entry : attachDataMap.entrySet()) {
+				sink.put(Paths.get(dir, entry.getKey()).toString(), entry.getValue());
+			}
+		}
+	}
+
 }
@@ -31,4 +31,13 @@ public interface DirCollect {
      * @throws IOException
      */
     Map<String, byte[]> collect(String base, Map<String, byte[]> virtualFileMap) throws IOException;
+
+    /**
+     * 将目录中的文件直接写入归档
+     *
+     * @param base 基础路径
+     * @param sink 归档输出
+     * @throws IOException IO异常
+     */
+    void collect(String base, ArchiveSink sink) throws IOException;
 }
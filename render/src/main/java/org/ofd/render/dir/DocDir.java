@@ -464,6 +464,52 @@ public class DocDir implements DirCollect {
         return virtualFileMap;
     }
 
+    @Override
+    public void collect(String base, ArchiveSink sink) throws IOException {
+        if (document == null) {
+            throw new IllegalArgumentException("文档根节点（document）为空");
+        }
+
+        String dir = Paths.get(base, "Doc_" + index).toString();
+
+        DocObjDump.dump(document, Paths.get(dir, "Document.xml").toString(), sink);
+
+        if (annotations != null) {
+            DocObjDump.dump(annotations, Paths.get(dir, "Annotations.xml").toString(), sink);
+        }
+
+        if (this.pageAnnot != null) {
+            DocObjDump.dump(pageAnnot, Paths.get(dir, "Annotation.xml").toString(), sink);
+        }
+
+        if (signs != null) {
+            signs.collect(dir, sink);
+        }
+        if (pages != null) {
+            pages.collect(dir, sink);
+        }
+        if (publicRes != null) {
+            DocObjDump.dump(publicRes, Paths.get(dir, "PublicRes.xml").toString(), sink);
+        }
+        if (documentRes != null) {
+            DocObjDump.dump(documentRes, Paths.get(dir, "DocumentRes.xml").toString(), sink);
+        }
+        if (res != null) {
+            res.collect(dir, sink);
+        }
+        if (tpls != null) {
+            tpls.collect(dir, sink);
+        }
+
+        if (attachs != null) {
+            attachs.collect(dir, sink);
+        }
+
+        if (annotsDir != null) {
+            annotsDir.collect(dir, sink);
+        }
+    }
+
     /**
      * 注释目录
      */
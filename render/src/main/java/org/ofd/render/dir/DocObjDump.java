@@ -79,4 +79,28 @@ public class DocObjDump {
             virtualFileMap.put(loc, bos.toByteArray());
         }
     }
+
+    /**
+     * 序列化文档对象
+     * <p>
+     * 直接写入归档条目，不在内存中保留序列化结果
+     *
+     * @param e    文档对象
+     * @param loc  条目路径
+     * @param sink 归档输出
+     * @throws IOException IO异常
+     */
+    public static void dump(Element e, String loc, ArchiveSink sink) throws IOException {
+        if (e == null) {
+            return;
+        }
+
+        Document doc = DocumentHelper.createDocument();
+        doc.add(e);
+        try (OutputStream out = sink.open(loc)) {
+            XMLWriter writeToSink = new XMLWriter(out);
+            writeToSink.write(doc);
+            writeToSink.flush();
+        }
+    }
 }
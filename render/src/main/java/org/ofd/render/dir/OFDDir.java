@@ -1,6 +1,8 @@
 package org.ofd.render.dir;
 
 
+import org.ofd.render.utils.ParallelZipArchiveSink;
+import org.ofd.render.utils.ZipArchiveSink;
 import org.ofd.render.utils.ZipUtil;
 import org.ofdrw.core.basicStructure.ofd.OFD;
 
@@ -145,22 +147,42 @@ public class OFDDir implements DirCollect {
         return virtualFileMap;
     }
 
+    @Override
+    public void collect(String base, ArchiveSink sink) throws IOException {
+        if (ofd == null) {
+            throw new IllegalArgumentException("文件主入口文件（ofd）为空");
+        }
+        if (container == null || container.isEmpty()) {
+            throw new IllegalArgumentException("文档（doc）为空");
+        }
+
+        for (DocDir doc : container) {
+            doc.collect(base, sink);
+        }
+        DocObjDump.dump(ofd, "OFD.xml", sink);
+    }
+
 
     /**
      * 打包成OFD
      * <p>
-     * 1. 创建文件夹复制文件
-     * 2. 打包
-     * 3. 删除临时文件
-     * <p>
-     * 使用操作系统临时文件夹作为生成OFD文件的临时路径
+     * 各文件条目直接压缩写入OFD文件，不生成临时目录
      *
      * @param fileName OFD文件名称路径（含后缀名）
      * @throws IOException IO异常
      */
     public void jar(String fileName) throws IOException {
-        String tmp = System.getProperty("java.io.tmpdir");
-        jar(tmp, fileName);
+        if (fileName == null || fileName.trim().length() == 0) {
+            throw new IllegalArgumentException("OFD文件名（fileName）不能为空");
+        }
+        Path target = Paths.get(fileName);
+        if (Files.exists(target)) {
+            Files.delete(target);
+        }
+        try (ZipArchiveSink sink = new ZipArchiveSink(target.toFile())) {
+            this.collect("", sink);
+            sink.finish();
+        }
     }
 
     /**
@@ -234,4 +256,36 @@ public class OFDDir implements DirCollect {
         ZipUtil.zip(virtualFileMap, output);
     }
 
+    /**
+     * 打包成OFD数据
+     * <p>
+     * 各文件条目产生后立即压缩写入输出流，不在内存中汇总整个文档
+     *
+     * @param output 输出流，打包完成后不关闭
+     * @throws IOException IO异常
+     */
+    public void jar(OutputStream output) throws IOException {
+        ZipArchiveSink sink = new ZipArchiveSink(output);
+        this.collect("", sink);
+        sink.finish();
+    }
+
+    /**
+     * 打包成OFD数据，多线程压缩各文件条目
+     *
+     * @param output      输出流，打包完成后不关闭
+     * @param parallelism 压缩线程数，小于等于1时单线程压缩
+     * @throws IOException IO异常
+     */
+    public void jar(OutputStream output, int parallelism) throws IOException {
+        if (parallelism <= 1) {
+            jar(output);
+            return;
+        }
+        try (ParallelZipArchiveSink sink = new ParallelZipArchiveSink(output, parallelism)) {
+            this.collect("", sink);
+            sink.finish();
+        }
+    }
+
 }
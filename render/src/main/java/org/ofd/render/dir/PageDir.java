@@ -40,6 +40,11 @@ public class PageDir implements DirCollect {
      */
     private Page content;
 
+    /**
+     * 已序列化的页面描述，若设置了content则无效
+     */
+    private byte[] contentOfData;
+
     public PageDir() {
     }
 
@@ -132,6 +137,24 @@ public class PageDir implements DirCollect {
         return this;
     }
 
+    /**
+     * @return 已序列化的页面描述
+     */
+    public byte[] getContentOfData() {
+        return contentOfData;
+    }
+
+    /**
+     * 设置已序列化的页面描述，若设置了content则无效
+     *
+     * @param contentOfData Content.xml内容
+     * @return this
+     */
+    public PageDir setContentOfData(byte[] contentOfData) {
+        this.contentOfData = contentOfData;
+        return this;
+    }
+
     /**
      * 创建目录并复制文件
      *
@@ -147,6 +170,8 @@ public class PageDir implements DirCollect {
 
         if (content != null) {
             DocObjDump.dump(this.content, Paths.get(dir, "Content.xml"));
+        } else if (contentOfData != null) {
+            Files.write(Paths.get(dir, "Content.xml"), contentOfData);
         }
         if (res != null) {
             res.collect(dir);
@@ -164,6 +189,8 @@ public class PageDir implements DirCollect {
 
         if (content != null) {
             DocObjDump.dump(this.content, Paths.get(dir, "Content.xml").toString(), virtualFileMap);
+        } else if (contentOfData != null) {
+            virtualFileMap.put(Paths.get(dir, "Content.xml").toString(), contentOfData);
         }
         if (res != null) {
             res.collect(dir, virtualFileMap);
@@ -173,4 +200,21 @@ public class PageDir implements DirCollect {
         }
         return virtualFileMap;
     }
+
+    @Override
+    public void collect(String base, ArchiveSink sink) throws IOException {
+        String dir = Paths.get(base, "Page_" + index).toString();
+
+        if (content != null) {
+            DocObjDump.dump(this.content, Paths.get(dir, "Content.xml").toString(), sink);
+        } else if (contentOfData != null) {
+            sink.put(Paths.get(dir, "Content.xml").toString(), contentOfData);
+        }
+        if (res != null) {
+            res.collect(dir, sink);
+        }
+        if (pageRes != null) {
+            DocObjDump.dump(this.pageRes, Paths.get(dir, "PageRes.xml").toString(), sink);
+        }
+    }
 }
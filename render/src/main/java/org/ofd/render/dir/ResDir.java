@@ -4,6 +4,7 @@ import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -135,4 +136,22 @@ public class ResDir implements DirCollect {
         }
         return virtualFileMap;
     }
+
+    @Override
+    public void collect(String base, ArchiveSink sink) throws IOException {
+        String dir = Paths.get(base, "Res").toString();
+        for (Map.Entry<String, Path> entry : content.entrySet()) {
+            if (!Files.exists(entry.getValue())) {
+                continue;
+            }
+            try (OutputStream out = sink.open(Paths.get(dir, entry.getKey()).toString())) {
+                Files.copy(entry.getValue(), out);
+            }
+        }
+
+        //写入二进制文件
+        for (Map.Entry<String, byte[]> entry : contentOfData.entrySet()) {
+            sink.put(Paths.get(dir, entry.getKey()).toString(), entry.getValue());
+        }
+    }
 }
@@ -3,6 +3,7 @@ package org.ofd.render.dir;
 import org.ofdrw.core.signatures.sig.Signature;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -155,4 +156,23 @@ public class SignDir implements DirCollect {
 //        }
         return virtualFileMap;
     }
+
+    @Override
+    public void collect(String base, ArchiveSink sink) throws IOException {
+        String dir = Paths.get(base, "Sign_" + index).toString();
+        if (signature == null) {
+            throw new IllegalArgumentException("缺少签名/签章描述文件（signature）");
+        }
+        DocObjDump.dump(signature, Paths.get(dir, "Signature.xml").toString(), sink);
+        if (seal != null) {
+            try (OutputStream out = sink.open(Paths.get(dir, "Seal.esl").toString())) {
+                Files.copy(seal, out);
+            }
+        }
+        if (signedValue != null) {
+            try (OutputStream out = sink.open(Paths.get(dir, "SignedValue.dat").toString())) {
+                Files.copy(signedValue, out);
+            }
+        }
+    }
 }
@@ -127,4 +127,19 @@ public class SignsDir implements DirCollect {
         }
         return virtualFileMap;
     }
+
+    @Override
+    public void collect(String base, ArchiveSink sink) throws IOException {
+        if (container == null || container.isEmpty()) {
+            throw new IllegalArgumentException("缺少签名文件（SignDir）");
+        }
+        if (signatures == null) {
+            throw new IllegalArgumentException("缺少签名列表文件（signatures）");
+        }
+        String dir = Paths.get(base, "Signs").toString();
+        DocObjDump.dump(this.signatures, Paths.get(dir, "Signatures.xml").toString(), sink);
+        for (SignDir p : container) {
+            p.collect(dir, sink);
+        }
+    }
 }
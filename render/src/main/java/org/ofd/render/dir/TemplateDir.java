@@ -7,6 +7,7 @@ import org.ofdrw.core.basicStructure.res.Res;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -43,6 +44,11 @@ public class TemplateDir implements DirCollect {
      * 页面描述
      */
     private Template content;
+
+    /**
+     * 已序列化的页面描述
+     */
+    private byte[] contentOfData;
     
     /**
      * 页面描述Stream
@@ -146,6 +152,24 @@ public class TemplateDir implements DirCollect {
         return this;
     }
 
+    /**
+     * @return 已序列化的页面描述
+     */
+    public byte[] getContentOfData() {
+        return contentOfData;
+    }
+
+    /**
+     * 设置已序列化的页面描述，若设置了content则无效
+     *
+     * @param contentOfData Content.xml内容
+     * @return this
+     */
+    public TemplateDir setContentOfData(byte[] contentOfData) {
+        this.contentOfData = contentOfData;
+        return this;
+    }
+
     /**
      * 创建目录并复制文件
      *
@@ -161,6 +185,8 @@ public class TemplateDir implements DirCollect {
 
         if (content != null) {
             DocObjDump.dump(this.content, Paths.get(dir, "Content.xml"));
+        } else if (contentOfData != null) {
+            Files.write(Paths.get(dir, "Content.xml"), contentOfData);
         } else if (contentOfStream != null) {
         	Files.copy(contentOfStream, Paths.get(dir, "Content.xml"));
         } else if (contentOfPath != null) {
@@ -184,6 +210,8 @@ public class TemplateDir implements DirCollect {
 
         if (content != null) {
             DocObjDump.dump(this.content, Paths.get(dir, "Content.xml").toString(), virtualFileMap);
+        } else if (contentOfData != null) {
+            virtualFileMap.put(Paths.get(dir, "Content.xml").toString(), contentOfData);
         } else if (contentOfStream != null) {
 //            Files.copy(contentOfStream, Paths.get(dir, "Content.xml"));
             virtualFileMap.put(Paths.get(dir, "Content.xml").toString(), IOUtils.toByteArray(contentOfStream));
@@ -202,6 +230,32 @@ public class TemplateDir implements DirCollect {
         return virtualFileMap;
     }
 
+    @Override
+    public void collect(String base, ArchiveSink sink) throws IOException {
+        String dir = Paths.get(base, "Tpl_" + index).toString();
+
+        if (content != null) {
+            DocObjDump.dump(this.content, Paths.get(dir, "Content.xml").toString(), sink);
+        } else if (contentOfData != null) {
+            sink.put(Paths.get(dir, "Content.xml").toString(), contentOfData);
+        } else if (contentOfStream != null) {
+            try (OutputStream out = sink.open(Paths.get(dir, "Content.xml").toString())) {
+                IOUtils.copy(contentOfStream, out);
+            }
+        } else if (contentOfPath != null) {
+            try (OutputStream out = sink.open(Paths.get(dir, "Content.xml").toString())) {
+                Files.copy(contentOfPath, out);
+            }
+        }
+
+        if (res != null) {
+            res.collect(dir, sink);
+        }
+        if (pageRes != null) {
+            DocObjDump.dump(this.pageRes, Paths.get(dir, "PageRes.xml").toString(), sink);
+        }
+    }
+
     /**
      * 页面描述文件path，若设置了content的则无效
      */
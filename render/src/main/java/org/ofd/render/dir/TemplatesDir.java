@@ -90,4 +90,15 @@ public class TemplatesDir implements DirCollect {
         }
         return virtualFileMap;
     }
+
+    @Override
+    public void collect(String base, ArchiveSink sink) throws IOException {
+        if (container == null || container.isEmpty()) {
+            throw new IllegalArgumentException("缺少页面");
+        }
+        String dir = Paths.get(base, "Tpls").toString();
+        for (TemplateDir p : container) {
+            p.collect(dir, sink);
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package org.ofd.render.utils;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.MD5Digest;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * 摘要计算
+ */
+public class DigestUtil {
+
+    private DigestUtil() {
+    }
+
+    /**
+     * @param data 数据
+     * @return MD5摘要的十六进制字符串
+     */
+    public static String md5Hex(byte[] data) {
+        Digest digest = new MD5Digest();
+        digest.update(data, 0, data.length);
+        byte[] md5Bytes = new byte[digest.getDigestSize()];
+        digest.doFinal(md5Bytes, 0);
+        return Hex.toHexString(md5Bytes);
+    }
+}
@@ -0,0 +1,163 @@
+package org.ofd.render.utils;
+
+/**
+ * 定点数格式化
+ * <p>
+ * 按固定小数位数四舍五入并去掉末尾的0，直接写入字符数组，
+ * 不经过Double.toString、String.format或BigDecimal。
+ */
+public final class FixedFormat {
+
+    private static final long[] POW10 = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L};
+
+    /**
+     * 最大小数位数
+     */
+    public static final int MAX_PRECISION = POW10.length - 1;
+
+    /**
+     * 超过该值时不再使用定点格式化
+     */
+    private static final double MAX_FIXED = 1e12;
+
+    /**
+     * 写入一个数字最多需要的字符数，超出定点范围时按Double.toString写出，也不超过该长度
+     */
+    public static final int MAX_CHARS = 24;
+
+    private FixedFormat() {
+    }
+
+    /**
+     * 检查小数位数
+     *
+     * @param precision 小数位数
+     * @return 小数位数
+     */
+    public static int checkPrecision(int precision) {
+        if (precision < 0 || precision >= POW10.length) {
+            throw new IllegalArgumentException("小数位数（precision）超出范围: " + precision);
+        }
+        return precision;
+    }
+
+    /**
+     * 按小数位数四舍五入
+     *
+     * @param value     数值
+     * @param precision 小数位数
+     * @return 四舍五入后的数值
+     */
+    public static double round(double value, int precision) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FIXED) {
+            return value;
+        }
+        double factor = POW10[precision];
+        return Math.round(value * factor) / factor;
+    }
+
+    /**
+     * 按小数位数向下取整
+     *
+     * @param value     数值
+     * @param precision 小数位数
+     * @return 不大于value的最大定点数
+     */
+    public static double floor(double value, int precision) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FIXED) {
+            return value;
+        }
+        double factor = POW10[precision];
+        return Math.floor(value * factor) / factor;
+    }
+
+    /**
+     * 按小数位数向上取整
+     *
+     * @param value     数值
+     * @param precision 小数位数
+     * @return 不小于value的最小定点数
+     */
+    public static double ceil(double value, int precision) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FIXED) {
+            return value;
+        }
+        double factor = POW10[precision];
+        return Math.ceil(value * factor) / factor;
+    }
+
+    /**
+     * 格式化数字
+     *
+     * @param value     数值
+     * @param precision 小数位数
+     * @return 去掉末尾0的定点表示
+     */
+    public static String format(double value, int precision) {
+        char[] buf = new char[MAX_CHARS];
+        return new String(buf, 0, write(buf, 0, value, precision));
+    }
+
+    /**
+     * 把数字写入字符数组
+     *
+     * @param buf       字符数组，从pos起至少需要{@link #MAX_CHARS}个字符
+     * @param pos       写入位置
+     * @param value     数值
+     * @param precision 小数位数
+     * @return 写入后的位置
+     */
+    public static int write(char[] buf, int pos, double value, int precision) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            value = 0;
+        }
+        if (Math.abs(value) >= MAX_FIXED) {
+            String s = Double.toString(value);
+            s.getChars(0, s.length(), buf, pos);
+            return pos + s.length();
+        }
+        long factor = POW10[precision];
+        long n = Math.round(value * factor);
+        if (n < 0) {
+            buf[pos++] = '-';
+            n = -n;
+        }
+        long intPart = n / factor;
+        long fracPart = n % factor;
+        pos = writeLong(buf, pos, intPart);
+        if (fracPart != 0) {
+            int digits = precision;
+            while (fracPart % 10 == 0) {
+                fracPart /= 10;
+                digits--;
+            }
+            buf[pos++] = '.';
+            int start = pos;
+            pos += digits;
+            for (int i = pos - 1; i >= start; i--) {
+                buf[i] = (char) ('0' + fracPart % 10);
+                fracPart /= 10;
+            }
+        }
+        return pos;
+    }
+
+    private static int writeLong(char[] buf, int pos, long n) {
+        if (n == 0) {
+            buf[pos++] = '0';
+            return pos;
+        }
+        int start = pos;
+        while (n > 0) {
+            buf[pos++] = (char) ('0' + n % 10);
+            n /= 10;
+        }
+        // 反转
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            char t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,171 @@
+package org.ofd.render.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.ofd.render.dir.ArchiveSink;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * 多线程压缩的归档输出
+ * <p>
+ * 条目在线程池中各自DEFLATE压缩，再按写入顺序以原始数据写入zip，
+ * 生成的条目顺序与压缩数据和单线程压缩一致，不依赖线程调度。
+ * 正在压缩的条目数量有上限，避免压缩结果在内存中堆积。
+ * 打开的条目先缓存未压缩的数据，关闭时提交压缩，可以在多个线程中同时写入。
+ */
+public class ParallelZipArchiveSink implements ArchiveSink {
+
+    private final ZipArchiveOutputStream zaos;
+
+    private final ExecutorService pool;
+
+    /**
+     * 同时在压缩中的条目上限
+     */
+    private final int maxPending;
+
+    /**
+     * 按写入顺序排列的压缩任务
+     */
+    private final Deque<Future<CompressedEntry>> pending = new ArrayDeque<>();
+
+    /**
+     * @param output      输出流，finish和close都不会关闭
+     * @param parallelism 压缩线程数
+     */
+    public ParallelZipArchiveSink(OutputStream output, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("压缩线程数（parallelism）不能小于1");
+        }
+        this.zaos = new ZipArchiveOutputStream(output);
+        this.pool = Executors.newFixedThreadPool(parallelism);
+        this.maxPending = parallelism * 2;
+    }
+
+    @Override
+    public void put(String loc, byte[] data) throws IOException {
+        submit(loc, data, data.length);
+    }
+
+    @Override
+    public OutputStream open(String loc) throws IOException {
+        return new Output(8192) {
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    submit(loc, buffer(), size());
+                }
+            }
+        };
+    }
+
+    /**
+     * 等待所有条目压缩完成并写入中央目录，不关闭底层输出流
+     *
+     * @throws IOException IO异常
+     */
+    @Override
+    public synchronized void finish() throws IOException {
+        drain(0);
+        zaos.finish();
+    }
+
+    /**
+     * 关闭压缩线程池，未写入的条目将被丢弃
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private synchronized void submit(String loc, byte[] data, int length) throws IOException {
+        String name = loc.replace('\\', '/');
+        pending.addLast(pool.submit(() -> deflate(name, data, length)));
+        drain(maxPending);
+    }
+
+    /**
+     * 按顺序写出已提交的条目，直到剩余任务数不超过limit
+     */
+    private void drain(int limit) throws IOException {
+        while (pending.size() > limit) {
+            CompressedEntry ce;
+            try {
+                ce = pending.removeFirst().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("压缩被中断", e);
+            } catch (ExecutionException e) {
+                throw new IOException("压缩条目失败", e.getCause());
+            }
+            zaos.addRawArchiveEntry(ce.entry, new ByteArrayInputStream(ce.data, 0, ce.length));
+        }
+    }
+
+    private static CompressedEntry deflate(String name, byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        Output out = new Output(Math.max(64, length / 2));
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setMethod(ZipEntry.DEFLATED);
+        entry.setSize(length);
+        entry.setCompressedSize(out.size());
+        entry.setCrc(crc.getValue());
+        return new CompressedEntry(entry, out.buffer(), out.size());
+    }
+
+    /**
+     * 可直接访问内部缓冲区的输出流，避免多余复制
+     */
+    private static class Output extends ByteArrayOutputStream {
+        Output(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    private static class CompressedEntry {
+        final ZipArchiveEntry entry;
+        final byte[] data;
+        final int length;
+
+        CompressedEntry(ZipArchiveEntry entry, byte[] data, int length) {
+            this.entry = entry;
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.ofd.render.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 路径数据（AbbreviatedData）编码
+ * <p>
+ * 按固定精度把M/L/B/C命令直接写入可复用的字符缓冲区，
+ * 不产生中间字符串和格式化对象。同一实例非线程安全，每页使用一个。
+ */
+public final class PathEncoder {
+
+    private final int precision;
+
+    private char[] buf = new char[256];
+
+    private int len = 0;
+
+    private boolean curve = false;
+
+    /**
+     * @param precision 小数位数，0~6
+     */
+    public PathEncoder(int precision) {
+        this.precision = FixedFormat.checkPrecision(precision);
+    }
+
+    /**
+     * 清空缓冲区以便编码下一条路径
+     *
+     * @return this
+     */
+    public PathEncoder reset() {
+        len = 0;
+        curve = false;
+        return this;
+    }
+
+    public PathEncoder moveTo(double x, double y) {
+        command('M');
+        number(x);
+        number(y);
+        return this;
+    }
+
+    public PathEncoder lineTo(double x, double y) {
+        command('L');
+        number(x);
+        number(y);
+        return this;
+    }
+
+    /**
+     * 三次贝塞尔曲线
+     */
+    public PathEncoder cubicTo(double x1, double y1, double x2, double y2, double x3, double y3) {
+        command('B');
+        number(x1);
+        number(y1);
+        number(x2);
+        number(y2);
+        number(x3);
+        number(y3);
+        curve = true;
+        return this;
+    }
+
+    public PathEncoder close() {
+        command('C');
+        return this;
+    }
+
+    /**
+     * @return 是否没有任何命令
+     */
+    public boolean isEmpty() {
+        return len == 0;
+    }
+
+    /**
+     * @return 是否包含曲线
+     */
+    public boolean hasCurve() {
+        return curve;
+    }
+
+    /**
+     * @return 编码后的路径数据
+     */
+    @Override
+    public String toString() {
+        // 去掉末尾空格
+        return new String(buf, 0, len > 0 ? len - 1 : 0);
+    }
+
+    /**
+     * 写出编码后的路径数据，不创建中间字符串
+     *
+     * @param out 输出
+     * @throws IOException IO异常
+     */
+    public void writeTo(Writer out) throws IOException {
+        out.write(buf, 0, len > 0 ? len - 1 : 0);
+    }
+
+    private void command(char c) {
+        ensure(2);
+        buf[len++] = c;
+        buf[len++] = ' ';
+    }
+
+    /**
+     * 按固定精度写出数字并去掉末尾的0，后接空格
+     */
+    private void number(double v) {
+        ensure(FixedFormat.MAX_CHARS + 1);
+        len = FixedFormat.write(buf, len, v, precision);
+        buf[len++] = ' ';
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) {
+            char[] n = new char[Math.max(buf.length * 2, len + extra)];
+            System.arraycopy(buf, 0, n, 0, len);
+            buf = n;
+        }
+    }
+}
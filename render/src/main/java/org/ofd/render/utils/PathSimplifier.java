@@ -0,0 +1,342 @@
+package org.ofd.render.utils;
+
+import java.util.Arrays;
+
+/**
+ * 路径简化
+ * <p>
+ * 位于路径迭代与{@link PathEncoder}之间，按子路径缓存命令，在容差范围内
+ * 去掉零长度线段和共线的中间点，把控制点偏离弦线不超过容差的贝塞尔曲线转为直线，
+ * 并把近似轴对齐的矩形规整为四个顶点的闭合子路径。坐标单位为OFD毫米。
+ * 容差为0时命令原样写出。同一实例非线程安全，每页使用一个。
+ */
+public final class PathSimplifier {
+
+    private static final byte LINE = 0;
+
+    private static final byte CURVE = 1;
+
+    /**
+     * 共线检查最多回溯的点数，超过时保留当前点
+     */
+    private static final int MAX_DROPPED = 64;
+
+    private final double tolerance;
+
+    private PathEncoder out;
+
+    private boolean started = false;
+
+    private double startX;
+
+    private double startY;
+
+    /**
+     * 当前子路径的命令，每个命令6个坐标，直线只使用最后两个
+     */
+    private byte[] types = new byte[16];
+
+    private double[] data = new double[96];
+
+    private int count = 0;
+
+    /**
+     * 简化结果
+     */
+    private byte[] outTypes = new byte[16];
+
+    private double[] outData = new double[96];
+
+    private int outCount = 0;
+
+    private double[] dropped = new double[MAX_DROPPED * 2];
+
+    /**
+     * @param tolerance 容差（毫米），0表示不简化
+     */
+    public PathSimplifier(double tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("路径简化容差（tolerance）不能小于0");
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * 设置输出并清空未完成的子路径
+     *
+     * @param out 路径编码，不会被清空
+     * @return this
+     */
+    public PathSimplifier reset(PathEncoder out) {
+        this.out = out;
+        this.started = false;
+        this.count = 0;
+        return this;
+    }
+
+    public PathSimplifier moveTo(double x, double y) {
+        if (tolerance <= 0) {
+            out.moveTo(x, y);
+            return this;
+        }
+        flush(false);
+        started = true;
+        startX = x;
+        startY = y;
+        return this;
+    }
+
+    public PathSimplifier lineTo(double x, double y) {
+        if (tolerance <= 0) {
+            out.lineTo(x, y);
+            return this;
+        }
+        int i = add(LINE);
+        data[i + 4] = x;
+        data[i + 5] = y;
+        return this;
+    }
+
+    /**
+     * 三次贝塞尔曲线
+     */
+    public PathSimplifier cubicTo(double x1, double y1, double x2, double y2, double x3, double y3) {
+        if (tolerance <= 0) {
+            out.cubicTo(x1, y1, x2, y2, x3, y3);
+            return this;
+        }
+        int i = add(CURVE);
+        data[i] = x1;
+        data[i + 1] = y1;
+        data[i + 2] = x2;
+        data[i + 3] = y2;
+        data[i + 4] = x3;
+        data[i + 5] = y3;
+        return this;
+    }
+
+    public PathSimplifier close() {
+        if (tolerance <= 0) {
+            out.close();
+            return this;
+        }
+        flush(true);
+        return this;
+    }
+
+    /**
+     * 写出最后一个子路径
+     */
+    public void finish() {
+        if (tolerance > 0) {
+            flush(false);
+        }
+    }
+
+    private int add(byte type) {
+        if (!started) {
+            // 缺少起点时以原点为起点，与PathIterator的行为一致
+            started = true;
+            startX = 0;
+            startY = 0;
+        }
+        if (count == types.length) {
+            types = Arrays.copyOf(types, count * 2);
+            data = Arrays.copyOf(data, count * 12);
+        }
+        types[count] = type;
+        return 6 * count++;
+    }
+
+    /**
+     * 简化并写出当前子路径
+     */
+    private void flush(boolean closed) {
+        if (!started || count == 0) {
+            // 只有起点的子路径（包括重复的闭合命令）不绘制任何内容
+            return;
+        }
+        simplify(closed);
+        if (closed && writeRectangle()) {
+            out.close();
+            count = 0;
+            return;
+        }
+        out.moveTo(startX, startY);
+        if (outCount == 0) {
+            // 全部为零长度线段时保留一个点，描边时仍会绘制线帽
+            out.lineTo(startX, startY);
+        } else {
+            for (int k = 0; k < outCount; k++) {
+                int i = 6 * k;
+                if (outTypes[k] == CURVE) {
+                    out.cubicTo(outData[i], outData[i + 1], outData[i + 2], outData[i + 3], outData[i + 4], outData[i + 5]);
+                } else {
+                    out.lineTo(outData[i + 4], outData[i + 5]);
+                }
+            }
+        }
+        if (closed) {
+            out.close();
+        }
+        // 闭合后的当前点为子路径起点
+        started = closed;
+        count = 0;
+    }
+
+    private void simplify(boolean closed) {
+        outCount = 0;
+        // 线段很少的子路径（矩形、三角形等）开销不大，只去掉完全重合的点，避免细长的填充区域被压扁
+        double tol = count <= 4 ? 0 : tolerance;
+        double anchorX = startX;
+        double anchorY = startY;
+        boolean hasCandidate = false;
+        double candX = 0;
+        double candY = 0;
+        int droppedCount = 0;
+        for (int k = 0; k < count; k++) {
+            int i = 6 * k;
+            double x = data[i + 4];
+            double y = data[i + 5];
+            double lastX = hasCandidate ? candX : anchorX;
+            double lastY = hasCandidate ? candY : anchorY;
+            if (types[k] == CURVE && !isFlat(lastX, lastY, i, tol)) {
+                if (hasCandidate) {
+                    emitLine(candX, candY);
+                    hasCandidate = false;
+                }
+                emitCurve(i);
+                anchorX = x;
+                anchorY = y;
+                droppedCount = 0;
+                continue;
+            }
+            // 零长度线段、细小曲线
+            if (Math.hypot(x - lastX, y - lastY) <= tol) {
+                continue;
+            }
+            if (!hasCandidate) {
+                hasCandidate = true;
+                candX = x;
+                candY = y;
+                continue;
+            }
+            // 候选点及之前省略的点都在起点到当前点的线段附近时省略候选点
+            boolean collinear = droppedCount < MAX_DROPPED
+                    && distanceToSegment(candX, candY, anchorX, anchorY, x, y) <= tol;
+            for (int d = 0; collinear && d < droppedCount; d++) {
+                collinear = distanceToSegment(dropped[2 * d], dropped[2 * d + 1], anchorX, anchorY, x, y) <= tol;
+            }
+            if (collinear) {
+                dropped[2 * droppedCount] = candX;
+                dropped[2 * droppedCount + 1] = candY;
+                droppedCount++;
+            } else {
+                emitLine(candX, candY);
+                anchorX = candX;
+                anchorY = candY;
+                droppedCount = 0;
+            }
+            candX = x;
+            candY = y;
+        }
+        if (hasCandidate) {
+            emitLine(candX, candY);
+        }
+        // 闭合子路径回到起点的直线由闭合命令代替
+        if (closed && outCount > 1 && outTypes[outCount - 1] == LINE) {
+            int i = 6 * (outCount - 1);
+            if (Math.hypot(outData[i + 4] - startX, outData[i + 5] - startY) <= tol) {
+                outCount--;
+            }
+        }
+    }
+
+    /**
+     * 控制点到弦线的距离不超过容差时曲线可视为直线
+     */
+    private boolean isFlat(double x0, double y0, int i, double tol) {
+        double x3 = data[i + 4];
+        double y3 = data[i + 5];
+        return distanceToSegment(data[i], data[i + 1], x0, y0, x3, y3) <= tol
+                && distanceToSegment(data[i + 2], data[i + 3], x0, y0, x3, y3) <= tol;
+    }
+
+    /**
+     * 近似轴对齐的矩形按对齐后的四个顶点写出
+     *
+     * @return 是否为矩形
+     */
+    private boolean writeRectangle() {
+        if (outCount != 3 || outTypes[0] != LINE || outTypes[1] != LINE || outTypes[2] != LINE) {
+            return false;
+        }
+        double x1 = outData[4];
+        double y1 = outData[5];
+        double x2 = outData[10];
+        double y2 = outData[11];
+        double x3 = outData[16];
+        double y3 = outData[17];
+        boolean horizontalFirst = near(startY, y1) && near(x1, x2) && near(y2, y3) && near(x3, startX);
+        boolean verticalFirst = near(startX, x1) && near(y1, y2) && near(x2, x3) && near(y3, startY);
+        if (!horizontalFirst && !verticalFirst) {
+            return false;
+        }
+        // 起点所在的边取平均值，保持原有的顶点顺序
+        double xa = (startX + (horizontalFirst ? x3 : x1)) / 2;
+        double xb = horizontalFirst ? (x1 + x2) / 2 : (x2 + x3) / 2;
+        double ya = (startY + (horizontalFirst ? y1 : y3)) / 2;
+        double yb = horizontalFirst ? (y2 + y3) / 2 : (y1 + y2) / 2;
+        out.moveTo(xa, ya);
+        if (horizontalFirst) {
+            out.lineTo(xb, ya);
+            out.lineTo(xb, yb);
+            out.lineTo(xa, yb);
+        } else {
+            out.lineTo(xa, yb);
+            out.lineTo(xb, yb);
+            out.lineTo(xb, ya);
+        }
+        return true;
+    }
+
+    private boolean near(double a, double b) {
+        return Math.abs(a - b) <= tolerance;
+    }
+
+    private void emitLine(double x, double y) {
+        int i = addOut(LINE);
+        outData[i + 4] = x;
+        outData[i + 5] = y;
+    }
+
+    private void emitCurve(int i) {
+        int o = addOut(CURVE);
+        System.arraycopy(data, i, outData, o, 6);
+    }
+
+    private int addOut(byte type) {
+        if (outCount == outTypes.length) {
+            outTypes = Arrays.copyOf(outTypes, outCount * 2);
+            outData = Arrays.copyOf(outData, outCount * 12);
+        }
+        outTypes[outCount] = type;
+        return 6 * outCount++;
+    }
+
+    /**
+     * 点到线段的距离
+     */
+    private static double distanceToSegment(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / len2;
+        if (t < 0) {
+            t = 0;
+        } else if (t > 1) {
+            t = 1;
+        }
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+}
@@ -0,0 +1,260 @@
+package org.ofd.render.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * TrueType字体子集化
+ * <p>
+ * 只保留使用到的字形轮廓（及组合字形引用的部件），未使用的字形置为空字形，
+ * 字形ID保持不变。页面中CGTransform引用的是原字体的字形ID，并且在打包前已经写出，
+ * 因此不能使用会重新编号字形的子集化方式（如fontbox的TTFSubsetter）。
+ * <p>
+ * 无法识别的字体（CFF/OpenType、字体集合、缺少glyf/loca表等）原样返回。
+ */
+public class TrueTypeSubsetter {
+
+    /**
+     * 去除字形指令时一并删除的表
+     */
+    private static final String[] HINTING_TABLES = {"fpgm", "prep", "cvt ", "hdmx", "LTSH", "VDMX"};
+
+    private static final int ARG_1_AND_2_ARE_WORDS = 0x0001;
+    private static final int WE_HAVE_A_SCALE = 0x0008;
+    private static final int MORE_COMPONENTS = 0x0020;
+    private static final int WE_HAVE_AN_X_AND_Y_SCALE = 0x0040;
+    private static final int WE_HAVE_A_TWO_BY_TWO = 0x0080;
+    private static final int WE_HAVE_INSTRUCTIONS = 0x0100;
+
+    private TrueTypeSubsetter() {
+    }
+
+    /**
+     * 生成字体子集
+     *
+     * @param fontBytes    字体文件内容
+     * @param glyphIds     使用到的字形ID
+     * @param stripHinting 是否去除字形指令及相关的表
+     * @return 子集字体内容，无法处理时返回原内容
+     */
+    public static byte[] subset(byte[] fontBytes, Collection<Integer> glyphIds, boolean stripHinting) {
+        try {
+            byte[] ret = doSubset(fontBytes, glyphIds, stripHinting);
+            return ret == null ? fontBytes : ret;
+        } catch (RuntimeException e) {
+            // 字体结构损坏时保留原字体
+            return fontBytes;
+        }
+    }
+
+    private static byte[] doSubset(byte[] fontBytes, Collection<Integer> glyphIds, boolean stripHinting) {
+        ByteBuffer in = ByteBuffer.wrap(fontBytes);
+        int version = in.getInt(0);
+        if (version != 0x00010000 && version != 0x74727565) {
+            // 'OTTO'、'ttcf'等
+            return null;
+        }
+        int numTables = in.getShort(4) & 0xFFFF;
+        Map<String, int[]> tables = new TreeMap<>();
+        for (int i = 0; i < numTables; i++) {
+            int rec = 12 + i * 16;
+            byte[] tag = new byte[4];
+            in.position(rec);
+            in.get(tag);
+            int offset = in.getInt(rec + 8);
+            int length = in.getInt(rec + 12);
+            if (offset < 0 || length < 0 || offset + length > fontBytes.length) {
+                return null;
+            }
+            tables.put(new String(tag, StandardCharsets.ISO_8859_1), new int[]{offset, length});
+        }
+        int[] head = tables.get("head");
+        int[] maxp = tables.get("maxp");
+        int[] loca = tables.get("loca");
+        int[] glyf = tables.get("glyf");
+        if (head == null || maxp == null || loca == null || glyf == null) {
+            return null;
+        }
+        int numGlyphs = in.getShort(maxp[0] + 4) & 0xFFFF;
+        boolean shortLoca = in.getShort(head[0] + 50) == 0;
+        int[] offsets = new int[numGlyphs + 1];
+        for (int i = 0; i <= numGlyphs; i++) {
+            offsets[i] = shortLoca ? (in.getShort(loca[0] + i * 2) & 0xFFFF) * 2 : in.getInt(loca[0] + i * 4);
+        }
+
+        // 1. 计算需要保留的字形，包括.notdef和组合字形的部件
+        BitSet keep = new BitSet(numGlyphs);
+        Deque<Integer> work = new ArrayDeque<>();
+        work.add(0);
+        for (Integer gid : glyphIds) {
+            if (gid != null) {
+                work.add(gid);
+            }
+        }
+        while (!work.isEmpty()) {
+            int gid = work.poll();
+            if (gid < 0 || gid >= numGlyphs || keep.get(gid)) {
+                continue;
+            }
+            keep.set(gid);
+            int start = glyf[0] + offsets[gid];
+            int len = offsets[gid + 1] - offsets[gid];
+            if (len <= 0 || in.getShort(start) >= 0) {
+                continue;
+            }
+            int p = start + 10;
+            int flags;
+            do {
+                flags = in.getShort(p) & 0xFFFF;
+                work.add(in.getShort(p + 2) & 0xFFFF);
+                p += 4 + componentArgsLength(flags);
+            } while ((flags & MORE_COMPONENTS) != 0);
+        }
+        if (keep.cardinality() >= numGlyphs && !stripHinting) {
+            return null;
+        }
+
+        // 2. 重建glyf和loca，loca统一使用长格式
+        ByteArrayOutputStream newGlyf = new ByteArrayOutputStream(fontBytes.length / 4);
+        ByteBuffer newLoca = ByteBuffer.allocate((numGlyphs + 1) * 4);
+        for (int gid = 0; gid < numGlyphs; gid++) {
+            newLoca.putInt(newGlyf.size());
+            int len = offsets[gid + 1] - offsets[gid];
+            if (!keep.get(gid) || len <= 0) {
+                continue;
+            }
+            int start = glyf[0] + offsets[gid];
+            if (stripHinting) {
+                writeGlyphWithoutInstructions(in, fontBytes, start, len, newGlyf);
+            } else {
+                newGlyf.write(fontBytes, start, len);
+            }
+            while (newGlyf.size() % 4 != 0) {
+                newGlyf.write(0);
+            }
+        }
+        newLoca.putInt(newGlyf.size());
+
+        byte[] newHead = Arrays.copyOfRange(fontBytes, head[0], head[0] + head[1]);
+        ByteBuffer.wrap(newHead).putInt(8, 0).putShort(50, (short) 1);
+
+        Map<String, byte[]> out = new TreeMap<>();
+        for (Map.Entry<String, int[]> e : tables.entrySet()) {
+            String tag = e.getKey();
+            if (stripHinting && Arrays.asList(HINTING_TABLES).contains(tag)) {
+                continue;
+            }
+            int[] t = e.getValue();
+            out.put(tag, Arrays.copyOfRange(fontBytes, t[0], t[0] + t[1]));
+        }
+        out.put("head", newHead);
+        out.put("glyf", newGlyf.toByteArray());
+        out.put("loca", newLoca.array());
+        return write(version, out);
+    }
+
+    /**
+     * 组合字形部件中参数和变换的字节数
+     */
+    private static int componentArgsLength(int flags) {
+        int len = (flags & ARG_1_AND_2_ARE_WORDS) != 0 ? 4 : 2;
+        if ((flags & WE_HAVE_A_SCALE) != 0) {
+            len += 2;
+        } else if ((flags & WE_HAVE_AN_X_AND_Y_SCALE) != 0) {
+            len += 4;
+        } else if ((flags & WE_HAVE_A_TWO_BY_TWO) != 0) {
+            len += 8;
+        }
+        return len;
+    }
+
+    /**
+     * 写出去除指令后的字形
+     */
+    private static void writeGlyphWithoutInstructions(ByteBuffer in, byte[] fontBytes, int start, int len, ByteArrayOutputStream out) {
+        int numberOfContours = in.getShort(start);
+        if (numberOfContours >= 0) {
+            // 简单字形：头部、轮廓终点、指令长度、指令、点数据
+            int instLenPos = start + 10 + numberOfContours * 2;
+            int instLen = in.getShort(instLenPos) & 0xFFFF;
+            out.write(fontBytes, start, instLenPos - start);
+            out.write(0);
+            out.write(0);
+            int rest = instLenPos + 2 + instLen;
+            out.write(fontBytes, rest, start + len - rest);
+            return;
+        }
+        // 组合字形：清除指令标志并截去末尾的指令
+        byte[] glyph = Arrays.copyOfRange(fontBytes, start, start + len);
+        ByteBuffer g = ByteBuffer.wrap(glyph);
+        int p = 10;
+        int flags;
+        do {
+            flags = g.getShort(p) & 0xFFFF;
+            g.putShort(p, (short) (flags & ~WE_HAVE_INSTRUCTIONS));
+            p += 4 + componentArgsLength(flags);
+        } while ((flags & MORE_COMPONENTS) != 0);
+        out.write(glyph, 0, p);
+    }
+
+    /**
+     * 按表标签顺序写出字体，并重新计算校验和
+     */
+    private static byte[] write(int version, Map<String, byte[]> tables) {
+        int numTables = tables.size();
+        int entrySelector = 31 - Integer.numberOfLeadingZeros(numTables);
+        int searchRange = (1 << entrySelector) * 16;
+
+        int size = 12 + numTables * 16;
+        for (byte[] data : tables.values()) {
+            size += (data.length + 3) & ~3;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(version);
+        out.putShort((short) numTables);
+        out.putShort((short) searchRange);
+        out.putShort((short) entrySelector);
+        out.putShort((short) (numTables * 16 - searchRange));
+
+        int offset = 12 + numTables * 16;
+        int headOffset = -1;
+        for (Map.Entry<String, byte[]> e : tables.entrySet()) {
+            byte[] data = e.getValue();
+            out.put(e.getKey().getBytes(StandardCharsets.ISO_8859_1));
+            out.putInt((int) checksum(data));
+            out.putInt(offset);
+            out.putInt(data.length);
+            if ("head".equals(e.getKey())) {
+                headOffset = offset;
+            }
+            offset += (data.length + 3) & ~3;
+        }
+        for (byte[] data : tables.values()) {
+            out.put(data);
+            out.position((out.position() + 3) & ~3);
+        }
+        byte[] ret = out.array();
+        out.putInt(headOffset + 8, (int) (0xB1B0AFBAL - checksum(ret)));
+        return ret;
+    }
+
+    private static long checksum(byte[] data) {
+        long sum = 0;
+        for (int i = 0; i < data.length; i += 4) {
+            long v = 0;
+            for (int j = 0; j < 4; j++) {
+                v = (v << 8) | (i + j < data.length ? data[i + j] & 0xFF : 0);
+            }
+            sum = (sum + v) & 0xFFFFFFFFL;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,147 @@
+package org.ofd.render.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.ofd.render.dir.ArchiveSink;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * 基于ZipArchiveOutputStream的归档输出
+ * <p>
+ * 条目在写入时即DEFLATE压缩，内存中只保留压缩后的数据，
+ * 关闭条目时以原始数据写入zip，因此可以同时打开多个条目，也可以在多个线程中写入。
+ */
+public class ZipArchiveSink implements ArchiveSink {
+
+    private final ZipArchiveOutputStream zaos;
+
+    /**
+     * @param output 输出流，finish后不会关闭，close时关闭
+     */
+    public ZipArchiveSink(OutputStream output) {
+        this.zaos = new ZipArchiveOutputStream(output);
+    }
+
+    /**
+     * @param file 目标文件
+     * @throws IOException IO异常
+     */
+    public ZipArchiveSink(File file) throws IOException {
+        this.zaos = new ZipArchiveOutputStream(file);
+    }
+
+    @Override
+    public void put(String loc, byte[] data) throws IOException {
+        try (OutputStream out = open(loc)) {
+            out.write(data);
+        }
+    }
+
+    @Override
+    public OutputStream open(String loc) {
+        return new EntryOutput(loc.replace('\\', '/'));
+    }
+
+    /**
+     * 写入中央目录，不关闭底层输出流
+     *
+     * @throws IOException IO异常
+     */
+    @Override
+    public synchronized void finish() throws IOException {
+        zaos.finish();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        zaos.close();
+    }
+
+    private synchronized void addRawEntry(ZipArchiveEntry entry, byte[] data, int length) throws IOException {
+        zaos.addRawArchiveEntry(entry, new ByteArrayInputStream(data, 0, length));
+    }
+
+    /**
+     * 边写入边压缩的条目
+     */
+    private class EntryOutput extends OutputStream {
+        private final String name;
+        private final CRC32 crc = new CRC32();
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final Output compressed = new Output(8192);
+        private final byte[] chunk = new byte[8192];
+        private long size = 0;
+        private boolean closed = false;
+
+        EntryOutput(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("条目已关闭: " + name);
+            }
+            crc.update(b, off, len);
+            size += len;
+            deflater.setInput(b, off, len);
+            // 调用方可能复用数组，返回前消耗全部输入
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+        }
+
+        private void deflate() {
+            int n = deflater.deflate(chunk);
+            compressed.write(chunk, 0, n);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate();
+                }
+            } finally {
+                deflater.end();
+            }
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setMethod(ZipEntry.DEFLATED);
+            entry.setSize(size);
+            entry.setCompressedSize(compressed.size());
+            entry.setCrc(crc.getValue());
+            addRawEntry(entry, compressed.buffer(), compressed.size());
+        }
+    }
+
+    /**
+     * 可直接访问内部缓冲区的输出流，避免多余复制
+     */
+    private static class Output extends ByteArrayOutputStream {
+        Output(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
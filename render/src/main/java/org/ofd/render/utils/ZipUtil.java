@@ -147,4 +147,27 @@ public class ZipUtil {
 
         zaos.finish();
     }
+
+    /**
+     * 多线程压缩OFD文件包二进制数据
+     * <p>
+     * 条目按Map的遍历顺序写入
+     *
+     * @param virtualFileMap 虚拟文件
+     * @param output         输出流
+     * @param parallelism    压缩线程数，小于等于1时单线程压缩
+     * @throws IOException IO异常
+     */
+    public static void zip(Map<String, byte[]> virtualFileMap, OutputStream output, int parallelism) throws IOException {
+        if (parallelism <= 1) {
+            zip(virtualFileMap, output);
+            return;
+        }
+        try (ParallelZipArchiveSink sink = new ParallelZipArchiveSink(output, parallelism)) {
+            for (Map.Entry<String, byte[]> entry : virtualFileMap.entrySet()) {
+                sink.put(entry.getKey(), entry.getValue());
+            }
+            sink.finish();
+        }
+    }
 }
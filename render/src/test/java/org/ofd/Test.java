@@ -2,6 +2,7 @@ package org.ofd;
 
 import org.apache.commons.io.FileUtils;
 import org.ofd.render.OFDRender;
+import org.ofd.render.config.ConvertOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,4 +47,41 @@ public class Test {
         }
     }
 
+    @org.junit.Test
+    public void convertToOfdParallel() {
+        Path input = Paths.get("src/test/resources/t.pdf");
+        Path output = Paths.get("target/t-from-pdf-parallel.ofd");
+        try {
+            byte[] pdfBytes = FileUtils.readFileToByteArray(input.toFile());
+            byte[] ofdBytes = OFDRender.convertPdfToOfd(pdfBytes, 4);
+            if (Objects.nonNull(ofdBytes)) {
+                FileUtils.writeByteArrayToFile(output.toFile(), ofdBytes);
+                logger.info("pdf convert to ofd done, pdf file save to {}", output.toAbsolutePath().toString());
+            } else {
+                logger.error("pdf convert to ofd failed");
+            }
+        } catch (Exception e) {
+            logger.error("test convert failed", e);
+        }
+    }
+
+    @org.junit.Test
+    public void convertToOfdWithMixedMemory() {
+        Path input = Paths.get("src/test/resources/sc.pdf");
+        Path output = Paths.get("target/sc-from-pdf-mixed.ofd");
+        try {
+            byte[] pdfBytes = FileUtils.readFileToByteArray(input.toFile());
+            ConvertOptions options = new ConvertOptions().setMixed(16 * 1024 * 1024);
+            byte[] ofdBytes = OFDRender.convertPdfToOfd(pdfBytes, options);
+            if (Objects.nonNull(ofdBytes)) {
+                FileUtils.writeByteArrayToFile(output.toFile(), ofdBytes);
+                logger.info("pdf convert to ofd done, pdf file save to {}", output.toAbsolutePath().toString());
+            } else {
+                logger.error("pdf convert to ofd failed");
+            }
+        } catch (Exception e) {
+            logger.error("test convert failed", e);
+        }
+    }
+
 }
@@ -0,0 +1,93 @@
+package org.ofd.render;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.util.Matrix;
+import org.dom4j.Element;
+import org.dom4j.io.SAXReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 页面绘制：图片缓存键、线宽缩放
+ */
+public class OFDPageDrawerTest {
+
+    private static final float POINTS_PER_MM = 72 / 25.4f;
+
+    @Test
+    public void keepsInlineImagesInFormApart() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (PDDocument doc = new PDDocument()) {
+            PDFormXObject form = new PDFormXObject(doc);
+            form.setBBox(new PDRectangle(100, 100));
+            try (OutputStream os = form.getCOSObject().createOutputStream()) {
+                // 两个尺寸相同、内容不同的内嵌图片
+                writeInlineImage(os, 0, new byte[]{0, 64, (byte) 128, (byte) 255});
+                writeInlineImage(os, 50, new byte[]{(byte) 255, (byte) 128, 64, 0});
+            }
+            PDPage page = new PDPage(PDRectangle.A4);
+            doc.addPage(page);
+            try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                cs.saveGraphicsState();
+                cs.transform(Matrix.getTranslateInstance(100, 100));
+                cs.drawForm(form);
+                cs.restoreGraphicsState();
+            }
+            doc.save(bos);
+        }
+        // 重新加载后Form为间接对象，有对象号
+        try (PDDocument doc = PDDocument.load(bos.toByteArray())) {
+            OFDCreator ofdCreator = new OFDCreator();
+            CompositeUnitWriter writer = new CompositeUnitWriter(210, 297);
+            new OFDPageDrawer(0, doc.getPage(0), ofdCreator, 1 / POINTS_PER_MM, writer).drawPage();
+            Assert.assertEquals(2, ofdCreator.getImageMap().size());
+        }
+    }
+
+    @Test
+    public void scalesInlineStrokesWithForm() throws Exception {
+        try (PDDocument doc = new PDDocument()) {
+            PDFormXObject form = new PDFormXObject(doc);
+            form.setBBox(new PDRectangle(100, 100));
+            try (OutputStream os = form.getCOSObject().createOutputStream()) {
+                os.write("2 w [4 2] 0 d 0 0 m 100 100 l S\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            PDPage page = new PDPage(PDRectangle.A4);
+            doc.addPage(page);
+            try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                // 第一次使用按原方式绘制，线宽、虚线与复合图元一样随使用处的变换矩阵缩放
+                cs.saveGraphicsState();
+                cs.transform(Matrix.getScaleInstance(0.5f, 0.5f));
+                cs.drawForm(form);
+                cs.restoreGraphicsState();
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            StreamPageContentWriter writer = new StreamPageContentWriter(bos, 1, 210, 297, 3, null);
+            OFDCreator ofdCreator = new OFDCreator().setDrawParams(false).setCoordinatePrecision(3);
+            new OFDPageDrawer(0, page, ofdCreator, 1 / POINTS_PER_MM, writer).drawPage();
+            writer.finish();
+            Element path = new SAXReader().read(new ByteArrayInputStream(bos.toByteArray())).getRootElement()
+                    .element("Content").element("Layer").element("PathObject");
+            Assert.assertEquals("0.353", path.attributeValue("LineWidth"));
+            Assert.assertEquals("0.706 0.353", path.attributeValue("DashPattern"));
+        }
+    }
+
+    private static void writeInlineImage(OutputStream os, int x, byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(("q 40 0 0 40 " + x + " 0 cm BI /W 2 /H 2 /BPC 8 /CS /G ID ").getBytes(StandardCharsets.US_ASCII));
+        bos.write(data);
+        bos.write(" EI Q\n".getBytes(StandardCharsets.US_ASCII));
+        os.write(bos.toByteArray());
+    }
+}
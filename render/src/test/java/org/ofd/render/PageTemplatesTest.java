@@ -0,0 +1,125 @@
+package org.ofd.render;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * 页面模板检测：相同的开头内容生成模板，不同的页面内容不进入模板
+ */
+public class PageTemplatesTest {
+
+    /**
+     * 页眉包含的操作符数：线宽1个，每条表格线3个
+     */
+    private static final int HEADER_OPS = 1 + 6 * 3;
+
+    @Test
+    public void sharesHeaderBetweenPages() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            addPage(doc, PDRectangle.A4, 10);
+            addPage(doc, PDRectangle.A4, 200);
+            PageTemplates templates = PageTemplates.detect(doc);
+            Assert.assertEquals(1, templates.getTemplates().size());
+            PageTemplates.Entry entry = templates.get(0);
+            Assert.assertNotNull(entry);
+            Assert.assertSame(entry, templates.get(1));
+            Assert.assertEquals(0, entry.getReferencePage());
+            // 页面内容不同的部分不属于模板
+            Assert.assertEquals(HEADER_OPS, entry.getOps());
+        }
+    }
+
+    @Test
+    public void choosesLongestSharedPrefix() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            addPage(doc, PDRectangle.A4, 10);
+            addPage(doc, PDRectangle.A4, 10);
+            addPage(doc, PDRectangle.A4, 200);
+            PageTemplates templates = PageTemplates.detect(doc);
+            // 三页共用页眉比前两页共用整页节省更多
+            Assert.assertEquals(HEADER_OPS, templates.get(0).getOps());
+            Assert.assertSame(templates.get(0), templates.get(2));
+        }
+    }
+
+    @Test
+    public void ignoresShortPrefix() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (float y : new float[]{10, 200}) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    cs.moveTo(0, 800);
+                    cs.lineTo(500, 800);
+                    cs.stroke();
+                    cs.addRect(50, y, 100, 100);
+                    cs.fill();
+                }
+            }
+            PageTemplates templates = PageTemplates.detect(doc);
+            Assert.assertTrue(templates.getTemplates().isEmpty());
+            Assert.assertNull(templates.get(0));
+        }
+    }
+
+    @Test
+    public void separatesPageSizes() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            addPage(doc, PDRectangle.A4, 10);
+            addPage(doc, PDRectangle.A3, 200);
+            PageTemplates templates = PageTemplates.detect(doc);
+            Assert.assertNull(templates.get(0));
+            Assert.assertNull(templates.get(1));
+        }
+    }
+
+    @Test
+    public void separatesPageLocalResources() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (float y : new float[]{10, 200}) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    // 同名的图形状态在各页面中分别定义，不能当作相同的内容
+                    PDExtendedGraphicsState gs = new PDExtendedGraphicsState();
+                    gs.setNonStrokingAlphaConstant(y / 255);
+                    cs.setGraphicsStateParameters(gs);
+                    drawHeader(cs);
+                    cs.addRect(50, y, 100, 100);
+                    cs.fill();
+                }
+            }
+            PageTemplates templates = PageTemplates.detect(doc);
+            Assert.assertNull(templates.get(0));
+        }
+    }
+
+    /**
+     * 添加一页：相同的页眉加上位置不同的矩形
+     */
+    private static void addPage(PDDocument doc, PDRectangle size, float bodyY) throws IOException {
+        PDPage page = new PDPage(size);
+        doc.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+            drawHeader(cs);
+            cs.addRect(50, bodyY, 100, 100);
+            cs.fill();
+        }
+    }
+
+    private static void drawHeader(PDPageContentStream cs) throws IOException {
+        cs.setLineWidth(0.5f);
+        for (int i = 0; i < 6; i++) {
+            cs.moveTo(30, 800 - i * 10);
+            cs.lineTo(560, 800 - i * 10);
+            cs.stroke();
+        }
+    }
+}
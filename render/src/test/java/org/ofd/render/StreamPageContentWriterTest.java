@@ -0,0 +1,94 @@
+package org.ofd.render;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.Element;
+import org.dom4j.io.SAXReader;
+import org.junit.Assert;
+import org.junit.Test;
+import org.ofd.render.utils.PathEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 流式页面内容输出：写出的Content.xml可以解析，属性与页面对象一致
+ */
+public class StreamPageContentWriterTest {
+
+    @Test
+    public void writesPageObjects() throws IOException, DocumentException {
+        ClosingOutput output = new ClosingOutput();
+        StreamPageContentWriter writer = new StreamPageContentWriter(output, 1, 210, 297.5f, 3, "7");
+        PathEncoder data = new PathEncoder(3).moveTo(0, 0).lineTo(10.25, 5);
+        writer.addPath(2, 1, 2, 10.25, 5, new DrawStyle().setLineWidth(0.353)
+                .setStrokeColor(new DrawStyle.Color("255 0 0", null))
+                .setLineStyle(new String[]{"Round", null, null, null, "1 2"})
+                .setStroke(true).setFill(false), data);
+        TextItem text = new TextItem(3).setBoundary(10, 20, 30, 5).setFont("4").setSize(3.5)
+                .setCodePosition(0, 3.5).setContent("a<b&\"c\"").setDeltaX(Arrays.asList("1", "1.5"))
+                .setGlyphs(Arrays.asList("5", "6", "7"));
+        text.getStyle().setDrawParam("8").setFill(true);
+        writer.addText(text);
+        writer.addImage(5, 0, 0, 20, 10, "9", "0 0 0.5 1", new PathEncoder(4).moveTo(0, 0).lineTo(0.5, 1));
+        writer.addComposite(6, 210, 297.5, "1 0 0 1 0 0", "10");
+        writer.addTo(null, 0);
+        Assert.assertTrue(output.closed);
+
+        Document doc = new SAXReader().read(new ByteArrayInputStream(output.toByteArray()));
+        Element page = doc.getRootElement();
+        Assert.assertEquals("7", page.element("Template").attributeValue("TemplateID"));
+        Assert.assertEquals("0 0 210 297.5", page.element("Area").elementText("PhysicalBox"));
+        Element layer = page.element("Content").element("Layer");
+        Assert.assertEquals(4, layer.elements().size());
+
+        Element path = layer.element("PathObject");
+        Assert.assertEquals("1 2 10.25 5", path.attributeValue("Boundary"));
+        Assert.assertEquals("0.353", path.attributeValue("LineWidth"));
+        Assert.assertEquals("Round", path.attributeValue("Cap"));
+        Assert.assertEquals("1 2", path.attributeValue("DashPattern"));
+        Assert.assertEquals("false", path.attributeValue("Fill"));
+        Assert.assertEquals("255 0 0", path.element("StrokeColor").attributeValue("Value"));
+        Assert.assertEquals("M 0 0 L 10.25 5", path.elementText("AbbreviatedData"));
+
+        Element textObject = layer.element("TextObject");
+        Assert.assertEquals("4", textObject.attributeValue("Font"));
+        Assert.assertEquals("8", textObject.attributeValue("DrawParam"));
+        Assert.assertNull(textObject.attributeValue("Stroke"));
+        Assert.assertEquals("5 6 7", textObject.element("CGTransform").elementText("Glyphs"));
+        Element textCode = textObject.element("TextCode");
+        Assert.assertEquals("1 1.5", textCode.attributeValue("DeltaX"));
+        Assert.assertEquals("a<b&\"c\"", textCode.getText());
+
+        Element image = layer.element("ImageObject");
+        Assert.assertEquals("20 0 0 10 0 0", image.attributeValue("CTM"));
+        Element clipPath = image.element("Clips").element("Clip").element("Area").element("Path");
+        Assert.assertEquals("0 0 0.5 1", clipPath.attributeValue("Boundary"));
+        Assert.assertEquals("M 0 0 L 0.5 1", clipPath.elementText("AbbreviatedData"));
+
+        Element composite = layer.element("CompositeObject");
+        Assert.assertEquals("0 0 210 297.5", composite.attributeValue("Boundary"));
+        Assert.assertEquals("10", composite.attributeValue("ResourceID"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsObjectsAfterFinish() throws IOException {
+        StreamPageContentWriter writer = new StreamPageContentWriter(1, 210, 297, 3);
+        writer.toByteArray();
+        writer.addComposite(2, 210, 297, "1 0 0 1 0 0", "3");
+    }
+
+    /**
+     * 记录是否已关闭的输出流
+     */
+    private static class ClosingOutput extends ByteArrayOutputStream {
+        boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.ofd.render.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 路径简化
+ */
+public class PathSimplifierTest {
+
+    private final PathEncoder encoder = new PathEncoder(3);
+
+    private PathSimplifier simplifier(double tolerance) {
+        return new PathSimplifier(tolerance).reset(encoder.reset());
+    }
+
+    @Test
+    public void dropsCollinearPoints() {
+        simplifier(0.01).moveTo(0, 0)
+                .lineTo(1, 0)
+                .lineTo(2, 0.001)
+                .lineTo(3, 0)
+                .lineTo(4, 0)
+                .lineTo(5, 0)
+                .lineTo(5, 5)
+                .finish();
+        Assert.assertEquals("M 0 0 L 5 0 L 5 5", encoder.toString());
+    }
+
+    @Test
+    public void keepsCorners() {
+        simplifier(0.01).moveTo(0, 0)
+                .lineTo(1, 0)
+                .lineTo(2, 0.1)
+                .lineTo(3, 0)
+                .lineTo(4, 0)
+                .lineTo(4, 4)
+                .finish();
+        Assert.assertEquals("M 0 0 L 1 0 L 2 0.1 L 3 0 L 4 0 L 4 4", encoder.toString());
+    }
+
+    @Test
+    public void flattensFlatCurves() {
+        simplifier(0.01).moveTo(0, 0)
+                .cubicTo(1, 0.001, 2, -0.001, 3, 0)
+                .lineTo(3, 3)
+                .cubicTo(4, 4, 5, 4, 6, 3)
+                .lineTo(6, 6)
+                .lineTo(9, 6)
+                .finish();
+        Assert.assertEquals("M 0 0 L 3 0 L 3 3 B 4 4 5 4 6 3 L 6 6 L 9 6", encoder.toString());
+    }
+
+    @Test
+    public void snapsRectangles() {
+        simplifier(0.01).moveTo(0, 0)
+                .lineTo(10, 0.004)
+                .lineTo(10.002, 5)
+                .lineTo(0, 5)
+                .close()
+                .finish();
+        Assert.assertEquals("M 0 0.002 L 10.001 0.002 L 10.001 5 L 0 5 C", encoder.toString());
+    }
+
+    @Test
+    public void replacesClosingLine() {
+        simplifier(0.01).moveTo(0, 0)
+                .lineTo(10, 0)
+                .lineTo(10, 5)
+                .lineTo(0, 5)
+                .lineTo(0, 0)
+                .close()
+                .finish();
+        Assert.assertEquals("M 0 0 L 10 0 L 10 5 L 0 5 C", encoder.toString());
+    }
+
+    @Test
+    public void skipsEmptySubpaths() {
+        simplifier(0.01).moveTo(0, 0)
+                .lineTo(1, 0)
+                .lineTo(1, 1)
+                .close()
+                .close()
+                .moveTo(5, 5)
+                .moveTo(6, 6)
+                .lineTo(7, 7)
+                .finish();
+        Assert.assertEquals("M 0 0 L 1 0 L 1 1 C M 6 6 L 7 7", encoder.toString());
+    }
+
+    @Test
+    public void keepsDotsForLineCaps() {
+        simplifier(0.01).moveTo(2, 2)
+                .lineTo(2, 2)
+                .finish();
+        Assert.assertEquals("M 2 2 L 2 2", encoder.toString());
+    }
+
+    @Test
+    public void passesThroughWithoutTolerance() {
+        simplifier(0).moveTo(0, 0)
+                .lineTo(1, 0)
+                .lineTo(2, 0)
+                .cubicTo(2, 0.001, 3, 0.001, 4, 0)
+                .close()
+                .finish();
+        Assert.assertEquals("M 0 0 L 1 0 L 2 0 B 2 0.001 3 0.001 4 0 C", encoder.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeTolerance() {
+        new PathSimplifier(-1);
+    }
+}
@@ -0,0 +1,109 @@
+package org.ofd.render.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.GlyphData;
+import org.apache.fontbox.ttf.GlyphTable;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * 字体子集化：生成子集后重新解析，检查字形数量及保留字形的轮廓
+ */
+public class TrueTypeSubsetterTest {
+
+    /**
+     * PDFBox自带的字体
+     */
+    private static final String FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    private static byte[] fontBytes;
+
+    @BeforeClass
+    public static void loadFont() throws IOException {
+        try (InputStream is = TrueTypeSubsetterTest.class.getResourceAsStream(FONT)) {
+            fontBytes = IOUtils.toByteArray(is);
+        }
+    }
+
+    @Test
+    public void keepsUsedGlyphsAndGlyphIds() throws IOException {
+        TrueTypeFont original = parse(fontBytes);
+        CmapLookup cmap = original.getUnicodeCmapLookup();
+        int a = cmap.getGlyphId('A');
+        int b = cmap.getGlyphId('B');
+        int z = cmap.getGlyphId('Z');
+
+        byte[] subset = TrueTypeSubsetter.subset(fontBytes, Arrays.asList(a, b), false);
+        Assert.assertTrue(subset.length < fontBytes.length);
+
+        TrueTypeFont font = parse(subset);
+        Assert.assertEquals(original.getNumberOfGlyphs(), font.getNumberOfGlyphs());
+        assertSameOutline(original, font, a);
+        assertSameOutline(original, font, b);
+        // 未使用的字形置为空字形
+        Assert.assertEquals(0, pointCount(font.getGlyph(), z));
+        Assert.assertTrue(pointCount(original.getGlyph(), z) > 0);
+        // .notdef总是保留
+        assertSameOutline(original, font, 0);
+    }
+
+    @Test
+    public void keepsCompositeComponents() throws IOException {
+        TrueTypeFont original = parse(fontBytes);
+        CmapLookup cmap = original.getUnicodeCmapLookup();
+        int aacute = cmap.getGlyphId('\u00C1');
+        Assert.assertTrue(original.getGlyph().getGlyph(aacute).getDescription().isComposite());
+
+        TrueTypeFont font = parse(TrueTypeSubsetter.subset(fontBytes, Collections.singleton(aacute), false));
+        assertSameOutline(original, font, aacute);
+        // 组合字形引用的部件也被保留
+        assertSameOutline(original, font, cmap.getGlyphId('A'));
+    }
+
+    @Test
+    public void stripsHintingTables() throws IOException {
+        TrueTypeFont original = parse(fontBytes);
+        Assert.assertNotNull(original.getTableMap().get("fpgm"));
+        int a = original.getUnicodeCmapLookup().getGlyphId('A');
+
+        TrueTypeFont font = parse(TrueTypeSubsetter.subset(fontBytes, Collections.singleton(a), true));
+        Assert.assertNull(font.getTableMap().get("fpgm"));
+        Assert.assertNull(font.getTableMap().get("prep"));
+        assertSameOutline(original, font, a);
+    }
+
+    @Test
+    public void returnsUnknownFontsUnchanged() {
+        byte[] data = "OTTO not a truetype font".getBytes();
+        Assert.assertSame(data, TrueTypeSubsetter.subset(data, Collections.singleton(1), false));
+    }
+
+    private static TrueTypeFont parse(byte[] data) throws IOException {
+        return new TTFParser().parse(new ByteArrayInputStream(data));
+    }
+
+    private static int pointCount(GlyphTable glyphs, int gid) throws IOException {
+        GlyphData glyph = glyphs.getGlyph(gid);
+        return glyph == null || glyph.getDescription() == null ? 0 : glyph.getDescription().getPointCount();
+    }
+
+    private static void assertSameOutline(TrueTypeFont expected, TrueTypeFont actual, int gid) throws IOException {
+        GlyphData e = expected.getGlyph().getGlyph(gid);
+        GlyphData a = actual.getGlyph().getGlyph(gid);
+        Assert.assertNotNull("glyph " + gid, a);
+        Assert.assertEquals(e.getBoundingBox().toString(), a.getBoundingBox().toString());
+        Assert.assertEquals(e.getDescription().getPointCount(), a.getDescription().getPointCount());
+        Assert.assertEquals(e.getPath().getBounds2D(), a.getPath().getBounds2D());
+        Assert.assertEquals(expected.getAdvanceWidth(gid), actual.getAdvanceWidth(gid));
+    }
+}
@@ -0,0 +1,111 @@
+package org.ofd.render.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 归档输出：写出的zip重新读取，检查条目内容
+ */
+public class ZipArchiveSinkTest {
+
+    @Test
+    public void writesEntriesAsTheyClose() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ZipArchiveSink sink = new ZipArchiveSink(bos);
+        // 页面与模板同时打开，先关闭的条目先写入
+        OutputStream page = sink.open("Doc_0\\Pages\\Page_0\\Content.xml");
+        OutputStream template = sink.open("Doc_0/Tpls/Tpl_0/Content.xml");
+        page.write(repeat("<ofd:PathObject/>", 1000));
+        template.write(repeat("<ofd:TextObject/>", 10));
+        template.close();
+        int written = bos.size();
+        Assert.assertTrue(written > 0);
+        sink.put("Doc_0/Res/image.png", new byte[]{1, 2, 3});
+        Assert.assertTrue(bos.size() > written);
+        page.write(repeat("<ofd:ImageObject/>", 1000));
+        page.close();
+        sink.finish();
+
+        try (ZipFile zip = new ZipFile(new SeekableInMemoryByteChannel(bos.toByteArray()))) {
+            Assert.assertEquals(Arrays.asList("Doc_0/Tpls/Tpl_0/Content.xml", "Doc_0/Res/image.png",
+                    "Doc_0/Pages/Page_0/Content.xml"), names(zip));
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            expected.write(repeat("<ofd:PathObject/>", 1000));
+            expected.write(repeat("<ofd:ImageObject/>", 1000));
+            Assert.assertArrayEquals(expected.toByteArray(), read(zip, "Doc_0/Pages/Page_0/Content.xml"));
+            Assert.assertArrayEquals(repeat("<ofd:TextObject/>", 10), read(zip, "Doc_0/Tpls/Tpl_0/Content.xml"));
+            Assert.assertArrayEquals(new byte[]{1, 2, 3}, read(zip, "Doc_0/Res/image.png"));
+        }
+    }
+
+    @Test
+    public void acceptsEntriesFromSeveralThreads() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ZipArchiveSink sink = new ZipArchiveSink(bos);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < 4; t++) {
+            int id = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20; i++) {
+                        try (OutputStream out = sink.open("Pages/Page_" + id + "_" + i + "/Content.xml")) {
+                            out.write(repeat(id + "-" + i + ";", 200));
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        sink.finish();
+
+        try (ZipFile zip = new ZipFile(new SeekableInMemoryByteChannel(bos.toByteArray()))) {
+            Assert.assertEquals(80, names(zip).size());
+            Assert.assertArrayEquals(repeat("3-17;", 200), read(zip, "Pages/Page_3_17/Content.xml"));
+        }
+    }
+
+    private static byte[] repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            sb.append(s);
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> names(ZipFile zip) {
+        List<String> names = new ArrayList<>();
+        for (ZipArchiveEntry entry : Collections.list(zip.getEntriesInPhysicalOrder())) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream is = zip.getInputStream(zip.getEntry(name))) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+}